@@ -0,0 +1,129 @@
+package bench;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+/**
+ * A small benchmark harness in the spirit of JMH, for running without a build tool.
+ * Each benchmark runs a few timed warmup iterations, then several timed measurement
+ * iterations, and reports throughput and the bytes allocated per operation (like JMH's
+ * gc.alloc.rate.norm) along with the number of GC runs.
+ *
+ * An optional setup step runs before every operation and is left out of both the time and
+ * the allocation figures.
+ */
+public class Benchmark {
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private final int warmupIterations;
+    private final int measurementIterations;
+    private final long iterationNanos;
+
+    // Results are folded in here so the JIT cannot drop the benchmarked work
+    private long sink;
+
+    /**
+     * Creates a harness.
+     * @param warmupIterations iterations run and discarded before measuring
+     * @param measurementIterations iterations measured
+     * @param iterationMillis length of each iteration
+     */
+    public Benchmark(int warmupIterations, int measurementIterations, long iterationMillis) {
+        this.warmupIterations = warmupIterations;
+        this.measurementIterations = measurementIterations;
+        this.iterationNanos = iterationMillis * 1_000_000L;
+    }
+
+    /**
+     * Work to benchmark. The returned value is consumed so that the work is not optimized away.
+     */
+    @FunctionalInterface
+    public interface Operation {
+        long run();
+    }
+
+    public static void printHeader() {
+        System.out.printf(Locale.ROOT, "%-44s %5s %14s %10s %14s %8s%n",
+                "Benchmark", "Cnt", "Score", "Error", "Alloc", "GCs");
+        System.out.printf(Locale.ROOT, "%-44s %5s %14s %10s %14s %8s%n",
+                "", "", "(ops/s)", "(ops/s)", "(B/op)", "");
+    }
+
+    /**
+     * Runs one benchmark and prints a line of results.
+     * @param name name shown in the results
+     * @param setup run before every operation, outside the measurement; may be null
+     * @param operation the operation to measure
+     */
+    public void run(String name, Runnable setup, Operation operation) {
+        for (int i = 0; i < warmupIterations; i++) {
+            iterate(setup, operation, null);
+        }
+
+        double[] scores = new double[measurementIterations];
+        long[] totals = new long[2]; // operations, allocated bytes
+        long gcsBefore = gcCount();
+        for (int i = 0; i < measurementIterations; i++) {
+            scores[i] = iterate(setup, operation, totals);
+        }
+        long gcs = gcCount() - gcsBefore;
+
+        double mean = 0;
+        for (double score : scores) {
+            mean += score;
+        }
+        mean /= scores.length;
+        double variance = 0;
+        for (double score : scores) {
+            variance += (score - mean) * (score - mean);
+        }
+        double error = scores.length > 1 ? Math.sqrt(variance / (scores.length - 1)) : Double.NaN;
+        double bytesPerOp = totals[0] == 0 ? 0 : (double) totals[1] / totals[0];
+
+        System.out.printf(Locale.ROOT, "%-44s %5d %14.3f %10.3f %14.1f %8d%n",
+                name, measurementIterations, mean, error, bytesPerOp, gcs);
+    }
+
+    /**
+     * Value accumulated from all operation results. Print it at the end of a run.
+     * @return the accumulated value
+     */
+    public long sink() {
+        return sink;
+    }
+
+    // Runs operations for one iteration and returns the throughput in operations per second
+    private double iterate(Runnable setup, Operation operation, long[] totals) {
+        long operations = 0;
+        long measuredNanos = 0;
+        long allocated = 0;
+        long deadline = System.nanoTime() + iterationNanos;
+        do {
+            if (setup != null) {
+                setup.run();
+            }
+            long allocatedBefore = THREADS.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            sink += operation.run();
+            measuredNanos += System.nanoTime() - start;
+            allocated += THREADS.getCurrentThreadAllocatedBytes() - allocatedBefore;
+            operations++;
+        } while (System.nanoTime() < deadline);
+
+        if (totals != null) {
+            totals[0] += operations;
+            totals[1] += allocated;
+        }
+        return operations * 1e9 / Math.max(1, measuredNanos);
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+}
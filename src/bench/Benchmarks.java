@@ -0,0 +1,291 @@
+package bench;
+
+import core.Avatar;
+import core.ChunkedWorld;
+import core.FovAlgorithm;
+import core.RaycastFov;
+import core.ReplayEngine;
+import core.ShadowcastFov;
+import core.Vision;
+import core.World;
+import tileengine.AsciiBackend;
+import tileengine.Camera;
+import tileengine.ImageBackend;
+import tileengine.TERenderer;
+import tileengine.TerrainLayer;
+import tileengine.TileGrid;
+import tileengine.Tileset;
+
+import java.util.Random;
+
+/**
+ * Benchmarks for world generation, chunked worlds, vision, rendering and replay.
+ *
+ * Usage: java bench.Benchmarks [filter]
+ * Only benchmarks whose name contains the filter are run. Iteration counts and length can be
+ * set with -Dbench.warmup, -Dbench.iterations and -Dbench.millis.
+ */
+public class Benchmarks {
+    private static final long SEED = 2025;
+
+    // Benchmarks whose setup is too slow to run unless they are selected
+    private static final String LARGE_RENDER = "renderFrameCamera[2000x2000]";
+    private static final String REPLAY = "replay[80x40,1M keys]";
+
+    private static final int[][] SIZES = {
+        {80, 40, 20},
+        {400, 200, 400},
+        {2000, 2000, 8000},
+    };
+
+    private final Benchmark harness;
+    private final String filter;
+
+    public Benchmarks(Benchmark harness, String filter) {
+        this.harness = harness;
+        this.filter = filter;
+    }
+
+    public static void main(String[] args) {
+        Benchmark harness = new Benchmark(
+                Integer.getInteger("bench.warmup", 3),
+                Integer.getInteger("bench.iterations", 5),
+                Long.getLong("bench.millis", 1000L));
+        Benchmarks benchmarks = new Benchmarks(harness, args.length > 0 ? args[0] : "");
+
+        Benchmark.printHeader();
+        benchmarks.generation();
+        benchmarks.stages();
+        benchmarks.chunks();
+        benchmarks.vision();
+        benchmarks.rendering();
+        benchmarks.replay();
+        System.out.println("(sink " + harness.sink() + ")");
+    }
+
+    // Whole-world generation at several sizes
+    private void generation() {
+        for (int[] size : SIZES) {
+            run("generateWorld[" + size[0] + "x" + size[1] + "]", null, () -> {
+                World world = new World(size[0], size[1], size[2]);
+                world.generateWorld(SEED);
+                return world.getTotalCoins();
+            });
+        }
+    }
+
+    // Each generation stage on its own, with the earlier stages done in setup
+    private void stages() {
+        for (int[] size : SIZES) {
+            String suffix = "[" + size[0] + "x" + size[1] + "]";
+            World[] world = new World[1];
+
+            run("placeRooms" + suffix, () -> {
+                world[0] = new World(size[0], size[1], size[2]);
+                world[0].setSeed(SEED);
+                world[0].initializeGrid();
+            }, () -> {
+                world[0].placeRooms();
+                return world[0].getRooms().size();
+            });
+
+            run("connectRooms" + suffix, () -> {
+                world[0] = new World(size[0], size[1], size[2]);
+                world[0].setSeed(SEED);
+                world[0].initializeGrid();
+                world[0].placeRooms();
+            }, () -> {
+                world[0].connectRooms();
+                return world[0].getWorldGrid().idAt(0);
+            });
+
+            run("addWalls" + suffix, () -> {
+                world[0] = new World(size[0], size[1], size[2]);
+                world[0].generateTerrain(SEED);
+            }, () -> {
+                world[0].addWalls();
+                return world[0].getFloorMask().cardinality();
+            });
+
+            run("placeCoins" + suffix, () -> {
+                world[0] = new World(size[0], size[1], size[2]);
+                world[0].generateTerrain(SEED);
+                world[0].addWalls();
+            }, () -> {
+                world[0].placeCoins();
+                return world[0].getTotalCoins();
+            });
+        }
+    }
+
+    // Chunks of an unbounded world: generating one from scratch, portals included, and
+    // copying a window-sized view out of the cache while walking across chunk borders
+    private void chunks() {
+        int size = ChunkedWorld.CHUNK_SIZE;
+        ChunkedWorld cold = new ChunkedWorld(SEED, 1);
+        int[] next = {0};
+        run("generateChunk[" + size + "x" + size + "]", null, () -> {
+            next[0] += 1;
+            return cold.getChunk(next[0], -next[0]).idAt(0);
+        });
+
+        // One tile east and north per op, keeping the 3x3 chunks around the view cached
+        ChunkedWorld world = new ChunkedWorld(SEED, 9);
+        TileGrid view = new TileGrid(80, 40);
+        int[] position = {0};
+        run("chunkWalk[80x40]", null, () -> {
+            position[0] += 1;
+            int x0 = position[0];
+            int y0 = position[0] / 2;
+            world.evictOutside(Math.floorDiv(x0 + 40, size), Math.floorDiv(y0 + 20, size), 1);
+            world.copyRegion(view, x0, y0);
+            return view.idAt(0) + world.getCachedChunkCount();
+        });
+    }
+
+    // Line of sight around an avatar standing in the world, with each FOV algorithm
+    private void vision() {
+        for (int[] size : SIZES) {
+            FovAlgorithm[] algorithms = {new ShadowcastFov(), new RaycastFov()};
+
+            // Only generate the world if one of its benchmarks is selected
+            String[] names = new String[algorithms.length];
+            boolean selected = false;
+            for (int i = 0; i < algorithms.length; i++) {
+                names[i] = "updateVisibility[" + algorithms[i].getClass().getSimpleName() + ","
+                        + size[0] + "x" + size[1] + "]";
+                selected |= matches(names[i]);
+            }
+            if (!selected) {
+                continue;
+            }
+
+            World world = new World(size[0], size[1], size[2]);
+            world.generateWorld(SEED);
+            Avatar avatar = placeAvatar(world);
+            for (int i = 0; i < algorithms.length; i++) {
+                Vision vision = new Vision(world.getWorldGrid(), size[0], size[1]);
+                vision.setAvatar(avatar);
+                vision.setFovAlgorithm(algorithms[i]);
+                vision.toggleLineOfSight();
+
+                // Vision skips the work unless something changed, so force a full update
+                run(names[i], vision::invalidate, () -> {
+                    vision.updateVisibility();
+                    return vision.getVisibilityGrid().length;
+                });
+            }
+        }
+    }
+
+    // Rendering into an off-screen image, so no display is needed
+    private void rendering() {
+        String[] names = {"renderFrame[80x40]", "renderFrameWithFog[80x40]",
+                "renderFrameLayers[80x40]", "renderFrameAscii[80x40]"};
+        if (!matchesAny(names) && !matches(LARGE_RENDER)) {
+            return;
+        }
+        World world = new World(80, 40);
+        world.generateWorld(SEED);
+        Vision vision = new Vision(world.getWorldGrid(), 80, 40);
+        vision.setAvatar(placeAvatar(world));
+        vision.toggleLineOfSight();
+        TERenderer renderer = new TERenderer(new ImageBackend());
+        renderer.initialize(80, 40);
+
+        run(names[0], null, () -> {
+            renderer.renderFrame(world.getWorldGrid());
+            return 1;
+        });
+        run(names[1], null, () -> {
+            renderer.renderFrameWithFog(world.getWorldGrid(), vision.getVisibilityGrid(),
+                    vision.getExploredGrid(), true);
+            return 1;
+        });
+
+        TerrainLayer terrain = new TerrainLayer(world.getWorldGrid());
+        Camera view = new Camera(80, 40);
+        run(names[2], null, () -> {
+            renderer.renderFrameWithFog(terrain, world.getEntities(), vision.getVisibilityGrid(),
+                    vision.getExploredGrid(), true, view);
+            return 1;
+        });
+
+        // Scrolling half a tile per frame over a large world repaints the whole 80x40 view
+        if (matches(LARGE_RENDER)) {
+            World large = new World(2000, 2000, 8000);
+            large.generateWorld(SEED);
+            Camera camera = new Camera(80, 40);
+            double[] scroll = {0};
+            run(LARGE_RENDER, null, () -> {
+                scroll[0] = (scroll[0] + 0.5) % (2000 - 80);
+                camera.moveTo(scroll[0], scroll[0]);
+                renderer.renderFrame(large.getWorldGrid(), camera);
+                return 1;
+            });
+        }
+
+        TERenderer text = new TERenderer(new AsciiBackend());
+        text.initialize(80, 40);
+        run(names[3], text::invalidate, () -> {
+            text.renderFrameWithFog(terrain, world.getEntities(), vision.getVisibilityGrid(),
+                    vision.getExploredGrid(), true, view);
+            return 1;
+        });
+    }
+
+    // Headless replay of a million random moves, world generation included
+    private void replay() {
+        if (!matches(REPLAY)) {
+            return;
+        }
+        Random random = new Random(SEED);
+        StringBuilder keys = new StringBuilder();
+        for (int i = 0; i < 1_000_000; i++) {
+            keys.append("wasd".charAt(random.nextInt(4)));
+        }
+        try (ReplayEngine engine = new ReplayEngine(80, 40, 1)) {
+            run(REPLAY, null, () -> engine.replay(SEED, keys).getAvatarX());
+        }
+    }
+
+    // Helper Methods
+
+    private void run(String name, Runnable setup, Benchmark.Operation operation) {
+        if (matches(name)) {
+            harness.run(name, setup, operation);
+        }
+    }
+
+    private boolean matches(String name) {
+        return filter.isEmpty() || name.contains(filter);
+    }
+
+    private boolean matchesAny(String[] names) {
+        for (String name : names) {
+            if (matches(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Puts an avatar on the floor tile nearest the middle of the world
+    private static Avatar placeAvatar(World world) {
+        TileGrid grid = world.getWorldGrid();
+        int best = -1;
+        int bestDistance = Integer.MAX_VALUE;
+        for (int i = 0; i < grid.size(); i++) {
+            if (grid.idAt(i) == Tileset.FLOOR.id()
+                    && !world.hasCoinAt(i % grid.width(), i / grid.width())) {
+                int distance = Math.abs(i % grid.width() - grid.width() / 2)
+                        + Math.abs(i / grid.width() - grid.height() / 2);
+                if (distance < bestDistance) {
+                    bestDistance = distance;
+                    best = i;
+                }
+            }
+        }
+        return new Avatar(best % grid.width(), best / grid.width(), world);
+    }
+}
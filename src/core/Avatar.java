@@ -1,17 +1,18 @@
 package core;
 
+import tileengine.EntityLayer;
 import tileengine.TETile;
 import tileengine.Tileset;
 
 /**
  * Represents the player's avatar in the world.
- * Handles avatar position, movement, and interaction with the world.
+ * Handles avatar position, movement, and interaction with the world. The avatar is drawn from
+ * the world's entity layer and never changes the terrain.
  */
 public class Avatar {
     private int x;
     private int y;
     private TETile avatarTile;
-    private TETile originalTile;
     private World worldRef; // Reference to the world for coin collection
 
     /**
@@ -19,90 +20,27 @@ public class Avatar {
      * 
      * @param x The x-coordinate to place the avatar
      * @param y The y-coordinate to place the avatar
-     * @param world The world grid to place the avatar in
      * @param worldRef Reference to the world object
      */
-    public Avatar(int x, int y, TETile[][] world, World worldRef) {
+    public Avatar(int x, int y, World worldRef) {
         this.x = x;
         this.y = y;
         this.avatarTile = Tileset.AVATAR;
-        this.originalTile = world[x][y];
         this.worldRef = worldRef;
-        world[x][y] = avatarTile;  // Place avatar in world
-    }
-
-    /**
-     * Attempts to move the avatar up one square.
-     * 
-     * @param world The world grid
-     * @return true if the move was successful, false otherwise
-     */
-    public boolean moveUp(TETile[][] world) {
-        if (isValidMove(x, y + 1, world)) {
-            updatePosition(x, y + 1, world);
-            return true;
+        if (worldRef != null) {
+            worldRef.getEntities().put(x, y, avatarTile);  // Place avatar in world
         }
-        return false;
     }
 
     /**
-     * Attempts to move the avatar down one square.
-     * 
-     * @param world The world grid
-     * @return true if the move was successful, false otherwise
+     * Moves the avatar to a tile, picking up the coin there if there is one. Whether the
+     * move is allowed is up to KeyRules.step.
+     *
+     * @param newX The x-coordinate to move to
+     * @param newY The y-coordinate to move to
      */
-    public boolean moveDown(TETile[][] world) {
-        if (isValidMove(x, y - 1, world)) {
-            updatePosition(x, y - 1, world);
-            return true;
-        }
-        return false;
-    }
-
-    /**
-     * Attempts to move the avatar left one square.
-     * 
-     * @param world The world grid
-     * @return true if the move was successful, false otherwise
-     */
-    public boolean moveLeft(TETile[][] world) {
-        if (isValidMove(x - 1, y, world)) {
-            updatePosition(x - 1, y, world);
-            return true;
-        }
-        return false;
-    }
-
-    /**
-     * Attempts to move the avatar right one square.
-     * 
-     * @param world The world grid
-     * @return true if the move was successful, false otherwise
-     */
-    public boolean moveRight(TETile[][] world) {
-        if (isValidMove(x + 1, y, world)) {
-            updatePosition(x + 1, y, world);
-            return true;
-        }
-        return false;
-    }
-
-    /**
-     * Checks if a move to the specified coordinates is valid.
-     * 
-     * @param newX The x-coordinate to check
-     * @param newY The y-coordinate to check
-     * @param world The world grid
-     * @return true if the move is valid, false otherwise
-     */
-    private boolean isValidMove(int newX, int newY, TETile[][] world) {
-        // Check if within bounds
-        if (newX < 0 || newX >= world.length || newY < 0 || newY >= world[0].length) {
-            return false;
-        }
-        
-        // Check if not a wall
-        return world[newX][newY] != Tileset.WALL;
+    void moveTo(int newX, int newY) {
+        updatePosition(newX, newY);
     }
 
     /**
@@ -110,33 +48,21 @@ public class Avatar {
      * 
      * @param newX The new x-coordinate
      * @param newY The new y-coordinate
-     * @param world The world grid
      */
-    private void updatePosition(int newX, int newY, TETile[][] world) {
-        // Restore original tile at current position
-        world[x][y] = originalTile;
-        
-        // Check if moving onto a coin
-        boolean collectingCoin = world[newX][newY] == Tileset.COIN;
-        
-        // Report coin collection BEFORE replacing the coin
-        if (collectingCoin && worldRef != null) {
-            worldRef.collectCoin();
-        }
-        
-        // Save what's at the new position
-        originalTile = world[newX][newY];
-        
-        // If collecting a coin, change the tile to floor in the world
-        if (collectingCoin) {
-            world[newX][newY] = Tileset.FLOOR;
-            originalTile = Tileset.FLOOR; // Update original tile to floor too
+    private void updatePosition(int newX, int newY) {
+        if (worldRef != null) {
+            EntityLayer entities = worldRef.getEntities();
+            entities.remove(x, y);
+
+            // Picks up the coin at the new position, if there is one
+            worldRef.collectCoinAt(newX, newY);
+
+            entities.put(newX, newY, avatarTile);
         }
-        
+
         // Update position
         x = newX;
         y = newY;
-        world[x][y] = avatarTile;
     }
 
     /**
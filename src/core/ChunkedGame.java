@@ -0,0 +1,176 @@
+package core;
+
+import tileengine.Camera;
+import tileengine.RenderBackend;
+import tileengine.StdDrawBackend;
+import tileengine.TERenderer;
+import tileengine.TileGrid;
+import tileengine.Tileset;
+
+import java.awt.Color;
+import java.awt.Font;
+
+/**
+ * Exploring a ChunkedWorld, which has no edges. Each time the avatar moves, the window-sized
+ * part of the world around the camera is copied out of the chunks, generating the ones it
+ * reaches, and chunks far from the avatar are dropped, so memory stays the same however far
+ * the avatar walks. There are no coins, saves or line of sight; :Q goes back to the menu.
+ */
+public class ChunkedGame {
+    // Chunks kept in each direction around the avatar's chunk. The camera is centered on the
+    // avatar, so one chunk either way covers any view up to twice the chunk size
+    private static final int KEEP_RADIUS = 1;
+    private static final int CACHED_CHUNKS = (2 * KEEP_RADIUS + 1) * (2 * KEEP_RADIUS + 1);
+
+    private static final Font FONT = new Font("Monospaced", Font.PLAIN, 16);
+
+    private final int WIDTH;
+    private final int HEIGHT;
+    private final ChunkedWorld chunks;
+    private final TileGrid view;
+    private final Camera camera;
+    private final TERenderer ter;
+    private final InputQueue input;
+    private int avatarX;
+    private int avatarY;
+
+    /**
+     * Creates a chunked world to explore in the StdDraw window.
+     *
+     * @param width The width of the window in tiles
+     * @param height The height of the window in tiles
+     * @param seed The seed for chunk generation
+     */
+    public ChunkedGame(int width, int height, long seed) {
+        this(width, height, seed, new StdDrawBackend(), InputQueue.system());
+    }
+
+    /**
+     * Creates a chunked world to explore that draws to the given backend and reads keys from
+     * the given queue.
+     *
+     * @param width The width of the window in tiles
+     * @param height The height of the window in tiles
+     * @param seed The seed for chunk generation
+     * @param backend Where the world is drawn
+     * @param input Where run() reads keys from
+     */
+    public ChunkedGame(int width, int height, long seed, RenderBackend backend,
+                       InputQueue input) {
+        if (width > 2 * ChunkedWorld.CHUNK_SIZE || height > 2 * ChunkedWorld.CHUNK_SIZE) {
+            throw new IllegalArgumentException("View is larger than the chunks kept around "
+                    + "the avatar: " + width + "x" + height);
+        }
+        this.WIDTH = width;
+        this.HEIGHT = height;
+        this.chunks = new ChunkedWorld(seed, CACHED_CHUNKS);
+        this.view = new TileGrid(width, height);
+        this.camera = new Camera(width, height);
+        this.input = input;
+        this.ter = new TERenderer(backend);
+        ter.setOverlay(this::drawStatus);
+        ter.initialize(width, height);
+        placeAvatar();
+    }
+
+    /**
+     * Moves the avatar with w/a/s/d until :Q is typed, redrawing after every move.
+     */
+    public void run() {
+        renderFrame();
+        boolean colonPressed = false;
+        while (true) {
+            char key = Character.toLowerCase(input.take().character());
+            if (colonPressed && key == 'q') {
+                return;
+            }
+            colonPressed = key == ':';
+            int x = avatarX;
+            int y = avatarY;
+            switch (key) {
+                case 'w':
+                    y += 1;
+                    break;
+                case 's':
+                    y -= 1;
+                    break;
+                case 'a':
+                    x -= 1;
+                    break;
+                case 'd':
+                    x += 1;
+                    break;
+                default:
+                    continue;
+            }
+            if (chunks.getTile(x, y) == Tileset.FLOOR) {
+                avatarX = x;
+                avatarY = y;
+                renderFrame();
+            }
+        }
+    }
+
+    public int getAvatarX() {
+        return avatarX;
+    }
+
+    public int getAvatarY() {
+        return avatarY;
+    }
+
+    /**
+     * Gets how many chunks are generated and kept, which stays at most CACHED_CHUNKS.
+     */
+    public int getCachedChunkCount() {
+        return chunks.getCachedChunkCount();
+    }
+
+    /**
+     * Draws the part of the world around the avatar on the calling thread.
+     */
+    public void renderFrame() {
+        camera.centerOn(avatarX, avatarY);
+        int x0 = (int) camera.getX();
+        int y0 = (int) camera.getY();
+
+        // Drop the chunks the avatar left behind, then copy the view out of the rest
+        chunks.evictOutside(Math.floorDiv(avatarX, ChunkedWorld.CHUNK_SIZE),
+                Math.floorDiv(avatarY, ChunkedWorld.CHUNK_SIZE), KEEP_RADIUS);
+        chunks.copyRegion(view, x0, y0);
+        view.set(avatarX - x0, avatarY - y0, Tileset.AVATAR);
+
+        // The status text is drawn over the top two rows, so have them repainted every frame
+        ter.invalidateRegion(0, HEIGHT - 2, WIDTH, 2);
+        ter.renderFrame(view);
+    }
+
+    // Helper Methods
+
+    // Starts the avatar on the floor tile closest to the center of chunk (0, 0)
+    private void placeAvatar() {
+        TileGrid chunk = chunks.getChunk(0, 0);
+        int center = ChunkedWorld.CHUNK_SIZE / 2;
+        int closestDistance = Integer.MAX_VALUE;
+        for (int x = 0; x < chunk.width(); x++) {
+            for (int y = 0; y < chunk.height(); y++) {
+                int distance = Math.abs(x - center) + Math.abs(y - center);
+                if (chunk.get(x, y) == Tileset.FLOOR && distance < closestDistance) {
+                    closestDistance = distance;
+                    avatarX = x;
+                    avatarY = y;
+                }
+            }
+        }
+        if (closestDistance == Integer.MAX_VALUE) {
+            throw new IllegalStateException("No floor tiles in the first chunk");
+        }
+    }
+
+    private void drawStatus(RenderBackend backend) {
+        backend.text(1, HEIGHT - 1, "Chunk (" + Math.floorDiv(avatarX, ChunkedWorld.CHUNK_SIZE)
+                + ", " + Math.floorDiv(avatarY, ChunkedWorld.CHUNK_SIZE) + ")   "
+                + chunks.getCachedChunkCount() + " chunks loaded   :Q menu", FONT, Color.red,
+                RenderBackend.Align.LEFT);
+    }
+}
@@ -0,0 +1,212 @@
+package core;
+
+import tileengine.TETile;
+import tileengine.TileGrid;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An unbounded world made of fixed-size chunks that are generated on demand.
+ * Each chunk is built from (seed, chunkX, chunkY) alone, so it always comes out the same no
+ * matter which chunks were generated before it. Neighbouring chunks are joined by a hallway
+ * through a "portal" cell on their shared border, whose position is also derived from the
+ * seed, and each chunk connects its side of every portal to its nearest room.
+ * Generated chunks are kept in a bounded least-recently-used cache.
+ */
+public class ChunkedWorld {
+    public static final int CHUNK_SIZE = 64;
+
+    private static final int ROOMS_PER_CHUNK = 12;
+    // Portals stay this far from chunk corners
+    private static final int PORTAL_MARGIN = 4;
+    // Length of the straight hallway piece leading away from each portal
+    private static final int PORTAL_STUB = 2;
+
+    private static final int EAST = 0;
+    private static final int NORTH = 1;
+
+    private final long seed;
+    private final int maxCachedChunks;
+    private final LinkedHashMap<Long, TileGrid> chunks;
+
+    /**
+     * Creates a chunked world.
+     * @param seed the world seed
+     * @param maxCachedChunks how many generated chunks to keep before evicting the least
+     *                        recently used one
+     */
+    public ChunkedWorld(long seed, int maxCachedChunks) {
+        if (maxCachedChunks < 1) {
+            throw new IllegalArgumentException("Chunk cache must hold at least one chunk.");
+        }
+        this.seed = seed;
+        this.maxCachedChunks = maxCachedChunks;
+        this.chunks = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, TileGrid> eldest) {
+                return size() > ChunkedWorld.this.maxCachedChunks;
+            }
+        };
+    }
+
+    /**
+     * Gets the tile at the given world coordinates, generating its chunk if needed.
+     * @param x world x-coordinate, may be negative
+     * @param y world y-coordinate, may be negative
+     * @return the tile at x, y
+     */
+    public TETile getTile(int x, int y) {
+        TileGrid chunk = getChunk(Math.floorDiv(x, CHUNK_SIZE), Math.floorDiv(y, CHUNK_SIZE));
+        return chunk.get(Math.floorMod(x, CHUNK_SIZE), Math.floorMod(y, CHUNK_SIZE));
+    }
+
+    /**
+     * Gets a chunk by chunk coordinates, generating it if it is not cached.
+     * @param chunkX chunk x-coordinate
+     * @param chunkY chunk y-coordinate
+     * @return the chunk's tiles, CHUNK_SIZE x CHUNK_SIZE
+     */
+    public TileGrid getChunk(int chunkX, int chunkY) {
+        long key = chunkKey(chunkX, chunkY);
+        TileGrid chunk = chunks.get(key);
+        if (chunk == null) {
+            chunk = generateChunk(chunkX, chunkY);
+            chunks.put(key, chunk);
+        }
+        return chunk;
+    }
+
+    /**
+     * Copies the tiles of a window of the world into out, with out's (0, 0) at world (x0, y0).
+     * @param out grid to fill
+     * @param x0 world x-coordinate of the window's left edge
+     * @param y0 world y-coordinate of the window's bottom edge
+     */
+    public void copyRegion(TileGrid out, int x0, int y0) {
+        // Walk chunk by chunk so each chunk is looked up once, even with a small cache
+        int firstChunkX = Math.floorDiv(x0, CHUNK_SIZE);
+        int firstChunkY = Math.floorDiv(y0, CHUNK_SIZE);
+        int lastChunkX = Math.floorDiv(x0 + out.width() - 1, CHUNK_SIZE);
+        int lastChunkY = Math.floorDiv(y0 + out.height() - 1, CHUNK_SIZE);
+        for (int cy = firstChunkY; cy <= lastChunkY; cy++) {
+            for (int cx = firstChunkX; cx <= lastChunkX; cx++) {
+                TileGrid chunk = getChunk(cx, cy);
+                int fromX = Math.max(x0, cx * CHUNK_SIZE);
+                int toX = Math.min(x0 + out.width(), (cx + 1) * CHUNK_SIZE);
+                int fromY = Math.max(y0, cy * CHUNK_SIZE);
+                int toY = Math.min(y0 + out.height(), (cy + 1) * CHUNK_SIZE);
+                for (int y = fromY; y < toY; y++) {
+                    for (int x = fromX; x < toX; x++) {
+                        out.set(x - x0, y - y0, chunk.get(x - cx * CHUNK_SIZE, y - cy * CHUNK_SIZE));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops cached chunks further than radius chunks (in either axis) from the given chunk.
+     * @param chunkX chunk x-coordinate of the center
+     * @param chunkY chunk y-coordinate of the center
+     * @param radius how many chunks around the center to keep
+     */
+    public void evictOutside(int chunkX, int chunkY, int radius) {
+        Iterator<Long> keys = chunks.keySet().iterator();
+        while (keys.hasNext()) {
+            long key = keys.next();
+            int cx = (int) (key >> 32);
+            int cy = (int) key;
+            if (Math.abs(cx - chunkX) > radius || Math.abs(cy - chunkY) > radius) {
+                keys.remove();
+            }
+        }
+    }
+
+    public int getCachedChunkCount() {
+        return chunks.size();
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    // Chunk generation:
+
+    private TileGrid generateChunk(int chunkX, int chunkY) {
+        World chunk = new World(CHUNK_SIZE, CHUNK_SIZE, ROOMS_PER_CHUNK);
+        chunk.generateTerrain(chunkSeed(chunkX, chunkY));
+        TileGrid grid = chunk.getWorldGrid();
+        List<Room> rooms = chunk.getRooms();
+        HallwayGenerator hallways = new HallwayGenerator(grid, rooms);
+
+        int last = CHUNK_SIZE - 1;
+        int inner = CHUNK_SIZE - 1 - PORTAL_STUB;
+
+        // East and west portals: straight horizontal stub, then a hallway to the nearest room
+        int east = portalOffset(chunkX, chunkY, EAST);
+        hallways.carveHallway(inner, east, last, east);
+        connectToNearestRoom(hallways, rooms, inner, east);
+
+        int west = portalOffset(chunkX - 1, chunkY, EAST);
+        hallways.carveHallway(PORTAL_STUB, west, 0, west);
+        connectToNearestRoom(hallways, rooms, PORTAL_STUB, west);
+
+        // North and south portals: straight vertical stub, then a hallway to the nearest room
+        int north = portalOffset(chunkX, chunkY, NORTH);
+        hallways.carveHallway(north, last, north, inner);
+        connectToNearestRoom(hallways, rooms, north, inner);
+
+        int south = portalOffset(chunkX, chunkY - 1, NORTH);
+        hallways.carveHallway(south, 0, south, PORTAL_STUB);
+        connectToNearestRoom(hallways, rooms, south, PORTAL_STUB);
+
+        chunk.addWalls();
+        return grid;
+    }
+
+    // Carve a hallway from a portal stub to the center of the closest room
+    private void connectToNearestRoom(HallwayGenerator hallways, List<Room> rooms, int x, int y) {
+        // Without rooms, portals meet in the middle of the chunk
+        int targetX = CHUNK_SIZE / 2;
+        int targetY = CHUNK_SIZE / 2;
+        int closestDistance = Integer.MAX_VALUE;
+        for (Room room : rooms) {
+            int centerX = room.getStartX() + room.getWidth() / 2;
+            int centerY = room.getStartY() + room.getHeight() / 2;
+            int distance = Math.abs(centerX - x) + Math.abs(centerY - y);
+            if (distance < closestDistance) {
+                closestDistance = distance;
+                targetX = centerX;
+                targetY = centerY;
+            }
+        }
+        hallways.carveHallway(x, y, targetX, targetY);
+    }
+
+    // Helper Methods
+
+    // Position of the portal on the east (or north) border of the given chunk
+    private int portalOffset(int chunkX, int chunkY, int side) {
+        long hash = mix(chunkSeed(chunkX, chunkY) ^ (side + 1) * 0x632BE59BD9B4E019L);
+        return PORTAL_MARGIN + (int) Math.floorMod(hash, (long) (CHUNK_SIZE - 2 * PORTAL_MARGIN));
+    }
+
+    private long chunkSeed(int chunkX, int chunkY) {
+        return mix(seed ^ mix(chunkKey(chunkX, chunkY)));
+    }
+
+    private static long chunkKey(int chunkX, int chunkY) {
+        return ((long) chunkX << 32) | (chunkY & 0xFFFFFFFFL);
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z += 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
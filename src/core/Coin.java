@@ -5,22 +5,26 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
-import tileengine.TETile;
+import tileengine.EntityLayer;
+import tileengine.TileGrid;
 import tileengine.Tileset;
 
 /**
- * Manages coin placement and tracking in the world.
+ * Manages coin placement and tracking in the world. Coins live in the world's entity layer,
+ * on top of the floor, so collecting one never changes the terrain.
  */
 public class Coin {
     private int totalCoins = 0;
     private int collectedCoins = 0;
     private final int totalCoinCount;
-    private final TETile[][] worldGrid;
+    private final TileGrid worldGrid;
+    private final EntityLayer entities;
     private final int width;
     private final int height;
 
-    public Coin(TETile[][] worldGrid, int width, int height, int totalCoinCount) {
+    public Coin(TileGrid worldGrid, EntityLayer entities, int width, int height, int totalCoinCount) {
         this.worldGrid = worldGrid;
+        this.entities = entities;
         this.width = width;
         this.height = height;
         this.totalCoinCount = totalCoinCount;
@@ -30,7 +34,7 @@ public class Coin {
         List<Point> floorTiles = new ArrayList<>();
         for (int x = 0; x < width; x++) {
             for (int y = 0; y < height; y++) {
-                if (worldGrid[x][y] == Tileset.FLOOR) {
+                if (worldGrid.get(x, y) == Tileset.FLOOR) {
                     floorTiles.add(new Point(x, y));
                 }
             }
@@ -47,14 +51,33 @@ public class Coin {
             if (Math.abs(p.x - centerX) < 5 && Math.abs(p.y - centerY) < 5) {
                 continue;
             }
-            worldGrid[p.x][p.y] = Tileset.COIN;
+            entities.put(p.x, p.y, Tileset.COIN);
             placed++;
         }
         totalCoins = placed;
     }
 
-    public void collectCoin() {
+    // Puts back saved coins, given as row-major cell indexes, and the saved counts
+    public void restore(int[] cells, int collected, int total) {
+        for (int cell : cells) {
+            entities.put(cell % width, cell / width, Tileset.COIN);
+        }
+        collectedCoins = collected;
+        totalCoins = total;
+    }
+
+    public boolean hasCoinAt(int x, int y) {
+        return entities.get(x, y) == Tileset.COIN;
+    }
+
+    // Removes the coin at (x, y), if there is one, and counts it as collected
+    public boolean collectCoinAt(int x, int y) {
+        if (!hasCoinAt(x, y)) {
+            return false;
+        }
+        entities.remove(x, y);
         collectedCoins++;
+        return true;
     }
 
     public boolean allCoinsCollected() {
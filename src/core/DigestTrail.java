@@ -0,0 +1,94 @@
+package core;
+
+import java.util.Arrays;
+
+/**
+ * World digests recorded every few keys of a run, starting from the state the run started
+ * in. Entry i is the digest after i * interval keys were applied. A tick here is an applied
+ * key rather than a frame, since frame timing differs from run to run but keys do not.
+ *
+ * Two trails of the same start and input can be compared with firstDivergence to find about
+ * where two runs stopped agreeing, without comparing whole states.
+ */
+public class DigestTrail {
+    private final int interval;
+    private long[] digests = new long[8];
+    private int size;
+
+    /**
+     * Creates a trail.
+     *
+     * @param interval Keys between recorded digests
+     * @param start The digest of the state the run starts in
+     */
+    public DigestTrail(int interval, long start) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("Interval must be positive: " + interval);
+        }
+        this.interval = interval;
+        record(start);
+    }
+
+    /**
+     * Records the digest after another interval keys.
+     */
+    public void record(long digest) {
+        if (size == digests.length) {
+            digests = Arrays.copyOf(digests, size * 2);
+        }
+        digests[size++] = digest;
+    }
+
+    public int interval() {
+        return interval;
+    }
+
+    /**
+     * Gets the number of digests recorded, including the start.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the digest after index * interval() keys.
+     */
+    public long get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Digest " + index + " of " + size);
+        }
+        return digests[index];
+    }
+
+    /**
+     * Finds the first recorded digest where this trail and another disagree, by binary search
+     * over the digests both trails have. This assumes that runs which have diverged stay
+     * diverged; a run that wanders off and comes back to the same state can hide an earlier
+     * divergence.
+     *
+     * @param other A trail of another run with the same start, input and interval
+     * @return The index of the first differing digest, so the runs diverged within the
+     *         interval keys before index * interval(); or -1 if all shared digests agree
+     */
+    public int firstDivergence(DigestTrail other) {
+        if (other.interval != interval) {
+            throw new IllegalArgumentException("Trails record at different intervals: "
+                    + interval + " and " + other.interval);
+        }
+        int n = Math.min(size, other.size);
+        if (n == 0 || digests[n - 1] == other.digests[n - 1]) {
+            return -1;
+        }
+        int low = 0;
+        int high = n - 1; // Known to differ
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (digests[mid] == other.digests[mid]) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
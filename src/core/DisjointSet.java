@@ -3,10 +3,12 @@ package core;
 public class DisjointSet {
     int parent[];
     int size[];
+    int components;
 
     public DisjointSet(int n) {
         parent = new int [n];
         size = new int[n];
+        components = n;
         for (int i = 0; i < n; i++) {
             parent[i] = i;
             size[i] = 1;
@@ -31,19 +33,19 @@ public class DisjointSet {
             parent[rootB] = rootA;
             size[rootA] += size[rootB];
         }
+        components--;
     }
 
     public boolean isConnected(int a, int b) {
         return find(a) == find(b);
     }
 
+    // Number of disjoint sets, kept up to date by union
+    public int componentCount() {
+        return components;
+    }
+
     public boolean isAllConnected() {
-        int rep = find(0);
-        for (int i = 0; i < parent.length; i++) {
-            if (find(i) != rep) {
-                return false;
-            }
-        }
-        return true;
+        return components <= 1;
     }
 }
@@ -0,0 +1,29 @@
+package core;
+
+import tileengine.TileGrid;
+
+/**
+ * A field-of-view algorithm: works out which cells can be seen from an origin cell.
+ * Walls block sight but are themselves visible, and so is the origin.
+ */
+public interface FovAlgorithm {
+
+    /**
+     * Receives the cells found to be visible. Cells are always inside the grid.
+     */
+    @FunctionalInterface
+    interface CellVisitor {
+        void visit(int x, int y);
+    }
+
+    /**
+     * Reports every cell visible from the origin within the given radius.
+     * A cell may be reported more than once.
+     * @param grid the world grid
+     * @param originX x-coordinate of the viewer
+     * @param originY y-coordinate of the viewer
+     * @param radius how far the viewer can see, in tiles
+     * @param visitor receives each visible cell
+     */
+    void compute(TileGrid grid, int originX, int originY, int radius, CellVisitor visitor);
+}
@@ -1,14 +1,23 @@
 package core;
 
 import edu.princeton.cs.algs4.StdDraw;
+import tileengine.BitGrid;
+import tileengine.Camera;
+import tileengine.RenderBackend;
+import tileengine.StdDrawBackend;
 import tileengine.TERenderer;
-import tileengine.TETile;
+import tileengine.TerrainLayer;
+import tileengine.TileGrid;
 import tileengine.Tileset;
-import java.io.BufferedWriter;
-import java.io.FileWriter;
+import utils.Histogram;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.awt.Color;
 import java.awt.Font;
+import java.util.concurrent.locks.LockSupport;
 
 
 /**
@@ -21,126 +30,504 @@ public class Game {
     private TERenderer ter;
     private boolean gameRunning;
     private boolean gameCompleted;
+    // Size of the window in tiles; the world may be larger, and the camera scrolls over it
     private final int WIDTH;
     private final int HEIGHT;
-    private StringBuilder inputHistory = new StringBuilder();
-    private boolean colonPressed = false;
+    private final int worldWidth;
+    private final int worldHeight;
+    // The state at the last checkpoint and the keys typed since, which together are the save
+    private SaveFile.Checkpoint checkpoint;
+    private final StringBuilder keysSinceCheckpoint = new StringBuilder();
+
+    // World digests every DIGEST_KEYS keys since the checkpoint, saved to check replays against
+    private DigestTrail trail;
+    // Where replaying a loaded save's tail first differed from its trail, or -1
+    private int loadDivergence = -1;
+
+    // The save slot :Q saves to, kept in every checkpoint so a recovered game saves there too
+    private String saveSlot;
+
+    // Keeps every accepted key on disk as it is typed, for games played in the window
+    private InputJournal journal;
+
+    // What KeyRules.step works on: the avatar's position, and masks of the walls and of the
+    // coins not collected yet. The Avatar and World follow what step reports.
+    private final KeyRules.Position position;
+    private final BitGrid walls;
+    private final BitGrid coins;
     private long SEED;
     private final Vision vision;
+    private final Camera camera;
+    private final TerrainLayer terrain;
+    private final RenderBackend backend;
+    private final InputQueue input;
+
+    // The simulation thread publishes snapshots of the game; the render thread draws the latest
+    private final SnapshotExchange snapshots;
+    private volatile boolean rendering;
+    private volatile RuntimeException renderFailure;
+
+    // The game thread runs fixed ticks and catches up on at most MAX_CATCH_UP_TICKS missed
+    // ticks; the render thread aims for FRAME_NANOS per frame and skips frames it is late for
+    private static final long TICK_NANOS = 1_000_000_000L / 120;
+    private static final int MAX_CATCH_UP_TICKS = 5;
+    private static final long FRAME_NANOS = 1_000_000_000L / 60;
+
+    // Input-to-photon latency and time between presented frames, printed when run() ends if
+    // the byow.metrics system property is true
+    private final Histogram inputLatency = new Histogram("input latency");
+    private final Histogram frameTimes = new Histogram("frame time");
+
+    // When the oldest input that has not been shown yet arrived (0 if none), the last snapshot
+    // that carried input, and the last snapshot the render thread presented
+    private long unshownInputNanos;
+    private long lastInputSequence;
+    private volatile long shownSequence;
+
+    // Keys typed between checkpoints, so a save never holds more keys than this to replay
+    private static final int CHECKPOINT_KEYS = 256;
+    private static final int DIGEST_KEYS = ReplayEngine.DIGEST_KEYS;
+
+    // New games save to a slot named after the seed and when the game started, so two games
+    // on the same seed do not overwrite each other
+    private static final DateTimeFormatter SLOT_TIME =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+
+    // How much of the remaining distance the camera covers each frame when following the avatar
+    private static final double CAMERA_FOLLOW = 0.25;
 
     /**
-     * Creates a new game with the specified dimensions and seed.
+     * Creates a new game with the specified dimensions and seed, played in the StdDraw window.
      *
      * @param width The width of the game world
      * @param height The height of the game world
      * @param seed The seed for world generation
      */
     public Game(int width, int height, long seed) {
-        this.WIDTH = width;
-        this.HEIGHT = height;
+        this(width, height, width, height, seed);
+    }
+
+    /**
+     * Creates a new game on a world larger than the StdDraw window. The window shows the part
+     * of the world around the avatar and scrolls as it moves.
+     *
+     * @param viewWidth The width of the window in tiles
+     * @param viewHeight The height of the window in tiles
+     * @param worldWidth The width of the game world
+     * @param worldHeight The height of the game world
+     * @param seed The seed for world generation
+     */
+    public Game(int viewWidth, int viewHeight, int worldWidth, int worldHeight, long seed) {
+        this(viewWidth, viewHeight, worldWidth, worldHeight, seed, new StdDrawBackend(),
+                InputQueue.system(), null, InputJournal.PATH);
+    }
+
+    /**
+     * Creates a new game that draws to the given backend, e.g. an ImageBackend or AsciiBackend
+     * to play without a display through loadInputHistory and renderFrame.
+     *
+     * @param width The width of the game world
+     * @param height The height of the game world
+     * @param seed The seed for world generation
+     * @param backend Where the game and HUD are drawn
+     */
+    public Game(int width, int height, long seed, RenderBackend backend) {
+        this(width, height, seed, backend, new InputQueue());
+    }
+
+    /**
+     * Creates a new game that draws to the given backend and reads keys from the given queue.
+     *
+     * @param width The width of the game world
+     * @param height The height of the game world
+     * @param seed The seed for world generation
+     * @param backend Where the game and HUD are drawn
+     * @param input Where run() reads keys from
+     */
+    public Game(int width, int height, long seed, RenderBackend backend, InputQueue input) {
+        this(width, height, width, height, seed, backend, input, null, null);
+    }
+
+    /**
+     * Loads a saved game, played in the StdDraw window. The saved state is put in place
+     * directly and only the keys typed after its checkpoint are replayed.
+     *
+     * @param save The save
+     * @param viewWidth The width of the window in tiles, at most the saved world's
+     * @param viewHeight The height of the window in tiles, at most the saved world's
+     */
+    public Game(SaveFile save, int viewWidth, int viewHeight) {
+        this(save, viewWidth, viewHeight, new StdDrawBackend(), InputQueue.system(),
+                InputJournal.PATH);
+    }
+
+    /**
+     * Loads a saved game that draws to the given backend and reads keys from the given queue.
+     *
+     * @param save The save
+     * @param backend Where the game and HUD are drawn
+     * @param input Where run() reads keys from
+     */
+    public Game(SaveFile save, RenderBackend backend, InputQueue input) {
+        this(save, save.getWidth(), save.getHeight(), backend, input, null);
+    }
+
+    private Game(SaveFile save, int viewWidth, int viewHeight, RenderBackend backend,
+                 InputQueue input, Path journalPath) {
+        this(viewWidth, viewHeight, save.getWidth(), save.getHeight(), save.getSeed(), backend,
+                input, save, journalPath);
+        for (char c : save.getInputTail().toCharArray()) {
+            processKeypress(c);
+        }
+
+        // A replay of the tail that ends up somewhere else means the rules or the save changed
+        if (save.getTrail() != null && keysSinceCheckpoint.length() == save.getInputTail().length()) {
+            loadDivergence = trail.firstDivergence(save.getTrail());
+            if (loadDivergence >= 0) {
+                hud.showStatus("Differs from the save before key "
+                        + loadDivergence * DIGEST_KEYS + " after its checkpoint");
+            }
+        }
+    }
+
+    // Generates the world from the seed, or restores it from save if that is not null. Keys
+    // are journaled to journalPath unless it is null.
+    private Game(int viewWidth, int viewHeight, int width, int height, long seed,
+                 RenderBackend backend, InputQueue input, SaveFile save, Path journalPath) {
+        this.WIDTH = Math.min(viewWidth, width);
+        this.HEIGHT = Math.min(viewHeight, height);
+        this.worldWidth = width;
+        this.worldHeight = height;
         this.world = new World(width, height);
         this.vision = new Vision(world.getWorldGrid(), width, height);
-        this.ter = new TERenderer();
+        this.backend = backend;
+        this.input = input;
+        this.ter = new TERenderer(backend);
         this.SEED = seed;
+        this.saveSlot = save != null ? save.getSaveSlot()
+                : "Seed " + seed + " " + SLOT_TIME.format(Instant.now());
         this.gameCompleted = false;
 
-        // Initialize the world with the provided seed
-        world.generateWorld(seed);
+        if (save == null) {
+            // Initialize the world with the provided seed
+            world.generateWorld(seed);
 
-        // Place the avatar at the center-most floor tile
-        this.avatar = placeAvatarAtCenterMost(world.getWorldGrid(), world);
+            // Place the avatar at the center-most floor tile
+            this.avatar = placeAvatarAtCenterMost(world.getWorldGrid(), world);
+        } else {
+            save.restore(world, vision);
+            this.avatar = new Avatar(save.getAvatarX(), save.getAvatarY(), world);
+        }
+
+        this.position = new KeyRules.Position(avatar.getX(), avatar.getY());
+        this.walls = world.getWorldGrid().mask(Tileset.WALL);
+        this.coins = KeyRules.coinMask(world);
 
         // Set avatar reference in world for line of sight updates
         vision.setAvatar(this.avatar);
 
         // Initialize visibility for first frame
         vision.updateVisibility();
+        this.checkpoint = SaveFile.capture(seed, saveSlot, world, avatar, vision);
+        this.trail = new DigestTrail(DIGEST_KEYS, world.digest());
+        if (journalPath != null) {
+            this.journal = new InputJournal(journalPath, checkpoint);
+        }
+
+        // Terrain is rendered once into pages; the avatar and coins are drawn over it
+        this.terrain = new TerrainLayer(world.getWorldGrid());
+
+        // The window shows a window-sized view of the world that follows the avatar
+        this.camera = new Camera(WIDTH, HEIGHT);
+        camera.centerOn(avatar.getX(), avatar.getY());
+        camera.clampTo(width, height);
 
         // Initialize HUD with world reference for line of sight display
-        this.hud = new HUD(width, height, world.getWorldGrid(), world, vision);
+        this.hud = new HUD(WIDTH, HEIGHT, world.getWorldGrid(), camera, backend);
+        ter.setOverlay(hud);
+        if (world.getPlacementFailure() != null) {
+            // The world is still playable with fewer rooms; say why it has them
+            hud.showStatus(world.getPlacementFailure());
+        }
+        this.snapshots = new SnapshotExchange(width, height, WIDTH, HEIGHT);
 
         // Initialize the renderer
         ter.initialize(WIDTH, HEIGHT);
     }
 
     /**
-     * Starts the game loop.
+     * Starts the game loop. Input and game state are handled on this thread in fixed ticks,
+     * while a separate render thread draws the latest snapshot of the game at its own rate, so
+     * a slow frame never delays input.
      * @return true if the game was completed (all coins collected), false otherwise
      */
     public boolean run() {
         gameRunning = true;
+        snapshots.publish(world, avatar, vision);
+        Thread renderThread = startRenderThread();
+
+        try {
+            long nextTick = System.nanoTime();
+            while (gameRunning) {
+                checkRenderThread();
+
+                // Run every tick that is due. After a stall, catch up on a few ticks, then
+                // skip the rest rather than run a long burst
+                int ticks = 0;
+                while (System.nanoTime() - nextTick >= 0 && ticks < MAX_CATCH_UP_TICKS) {
+                    tick();
+                    nextTick += TICK_NANOS;
+                    ticks += 1;
+                }
+                if (System.nanoTime() - nextTick >= 0) {
+                    nextTick = System.nanoTime() + TICK_NANOS;
+                }
 
-        while (gameRunning) {
-            // Process user input
-            if (StdDraw.hasNextKeyTyped()) {
-                processKeypress(StdDraw.nextKeyTyped());
-            }
+                // Check for game completion
+                if (world.allCoinsCollected() && !gameCompleted) {
+                    gameCompleted = true;
+                    stopRenderThread(renderThread);
+                    closeJournal(true);
+                    drawCompletionMessage();
+                    StdDraw.pause(2000); // Show message for 2 seconds
+                    return true;
+                }
 
-            // Refresh visibility each frame when LOS is on
-            if (vision.isLineOfSightEnabled()) {
-                vision.updateVisibility();
+                parkUntil(nextTick);
             }
+        } finally {
+            stopRenderThread(renderThread);
+            if (Boolean.getBoolean("byow.metrics")) {
+                System.out.println(inputLatency.summary());
+                System.out.println(frameTimes.summary());
+            }
+        }
 
-            // Render the world with line of sight if enabled
-            if (vision.isLineOfSightEnabled()) {
-                ter.renderFrameWithFog(world.getWorldGrid(),
-                                      vision.getVisibilityGrid(),
-                                      vision.getExploredGrid(),
-                                      true);
-            } else {
-                ter.renderFrame(world.getWorldGrid());
+        return false; // Game was not completed
+    }
+
+    /**
+     * Gets the digest of the game's current state; see World.digest.
+     */
+    public long getDigest() {
+        return world.digest();
+    }
+
+    /**
+     * Gets where the game loaded from a save stopped matching it. Replaying the save's input
+     * tail is checked against the digests recorded when it was saved; a mismatch means the
+     * rules or the save changed.
+     *
+     * @return The index of the first differing digest, so the game diverged within the
+     *         DIGEST_KEYS keys before key index * DIGEST_KEYS after the save's checkpoint; or -1
+     *         if the replay matched, or the game was not loaded or its save has no digests
+     */
+    public int getLoadDivergence() {
+        return loadDivergence;
+    }
+
+    /**
+     * Gets the name of the save slot :Q saves to: the slot a loaded or recovered game came
+     * from, or "Seed <seed> <start time>" for a new game.
+     */
+    public String getSaveSlot() {
+        return saveSlot;
+    }
+
+    /**
+     * Gets the queue run() reads keys from.
+     */
+    public InputQueue getInput() {
+        return input;
+    }
+
+    /**
+     * Gets the time from a key arriving to the first frame showing its effect being
+     * presented, for keys handled by run().
+     */
+    public Histogram getInputLatency() {
+        return inputLatency;
+    }
+
+    /**
+     * Gets the time between frames presented by the render thread.
+     */
+    public Histogram getFrameTimes() {
+        return frameTimes;
+    }
+
+    /**
+     * Draws one frame of the world and the HUD on the calling thread. Use this to render
+     * without a display; it must not be called while run() is running.
+     */
+    public void renderFrame() {
+        if (vision.isLineOfSightEnabled()) {
+            vision.updateVisibility();
+        }
+        snapshots.publish(world, avatar, vision);
+        drawSnapshot(snapshots.latest());
+    }
+
+    // Draws a snapshot of the game; only the render thread (or renderFrame) calls this
+    private void drawSnapshot(WorldSnapshot snapshot) {
+        // When it draws tile by tile, the renderer only repaints tiles that changed, so have
+        // it repaint the rows the HUD text was drawn over last frame
+        ter.invalidateRegion(0, HEIGHT - HUD.ROWS, WIDTH, HUD.ROWS);
+        hud.update(snapshot);
+
+        camera.follow(snapshot.getAvatarX(), snapshot.getAvatarY(), CAMERA_FOLLOW);
+        camera.clampTo(worldWidth, worldHeight);
+
+        // Render the world with line of sight if enabled
+        if (snapshot.isLineOfSightEnabled()) {
+            // The snapshot only has fog around the avatar, so a camera that fell far behind
+            // jumps to where there is some
+            boolean[][] visibility = snapshot.getVisibilityGrid();
+            camera.clampTo(snapshot.getFogX(), snapshot.getFogY(),
+                    snapshot.getFogX() + visibility.length,
+                    snapshot.getFogY() + visibility[0].length);
+            ter.renderFrameWithFog(terrain, snapshot.getEntities(),
+                                  visibility,
+                                  snapshot.getExploredGrid(),
+                                  snapshot.getFogX(), snapshot.getFogY(),
+                                  true, camera);
+        } else {
+            ter.renderFrame(terrain, snapshot.getEntities(), camera);
+        }
+    }
+
+    private Thread startRenderThread() {
+        rendering = true;
+        renderFailure = null;
+        Thread thread = new Thread(this::renderLoop, "render");
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    // One simulation tick: handles every key typed since the last tick, in order, then
+    // publishes a snapshot if anything was typed
+    private void tick() {
+        if (unshownInputNanos != 0 && shownSequence >= lastInputSequence) {
+            unshownInputNanos = 0;
+        }
+
+        boolean typed = false;
+        for (InputQueue.Key key = input.poll(); key != null; key = input.poll()) {
+            if (unshownInputNanos == 0) {
+                unshownInputNanos = key.nanos();
             }
+            processKeypress(key.character());
+            typed = true;
+        }
+        if (!typed) {
+            return;
+        }
 
-            // Display HUD
-            hud.draw();
+        // Refresh visibility when LOS is on; this is a no-op unless something changed
+        if (vision.isLineOfSightEnabled()) {
+            vision.updateVisibility();
+        }
+        snapshots.publish(world, avatar, vision, unshownInputNanos);
+        lastInputSequence = snapshots.lastPublished();
+    }
 
-            // Check for game completion
-            if (world.allCoinsCollected() && !gameCompleted) {
-                gameCompleted = true;
-                drawCompletionMessage();
-                StdDraw.pause(2000); // Show message for 2 seconds
-                return true;
+    // Redraws the latest snapshot every frame, also when it has not changed, so that the camera
+    // keeps scrolling and the HUD follows the mouse
+    private void renderLoop() {
+        try {
+            long nextFrame = System.nanoTime();
+            long lastShown = 0;
+            long lastMeasuredInput = 0;
+            while (rendering) {
+                WorldSnapshot snapshot = snapshots.latest();
+                drawSnapshot(snapshot);
+                long shown = System.nanoTime();
+
+                // A snapshot keeps the time of its oldest unshown input until the game thread
+                // sees that it was shown, so only measure each input time once
+                long input = snapshot.getInputNanos();
+                if (input != 0 && input != lastMeasuredInput) {
+                    inputLatency.record(shown - input);
+                    lastMeasuredInput = input;
+                }
+                shownSequence = snapshot.getSequence();
+                if (lastShown != 0) {
+                    frameTimes.record(shown - lastShown);
+                }
+                lastShown = shown;
+
+                // Drop frames we are already late for instead of drawing them back to back
+                nextFrame += FRAME_NANOS;
+                if (shown - nextFrame >= 0) {
+                    nextFrame = shown;
+                }
+                parkUntil(nextFrame);
             }
+        } catch (RuntimeException e) {
+            renderFailure = e;
+        }
+    }
 
-            // Small pause to avoid excessive CPU usage
-            StdDraw.pause(10);
+    private void stopRenderThread(Thread thread) {
+        rendering = false;
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
+        checkRenderThread();
+    }
 
-        return false; // Game was not completed
+    // Rethrows on the game thread whatever stopped the render thread
+    private void checkRenderThread() {
+        RuntimeException failure = renderFailure;
+        if (failure != null) {
+            renderFailure = null;
+            throw new RuntimeException("Render thread failed", failure);
+        }
     }
 
     /**
      * Draws a completion message when all coins are collected.
      */
     private void drawCompletionMessage() {
-        // Save the current font and color
-        Font currentFont = StdDraw.getFont();
-        Color currentColor = StdDraw.getPenColor();
-
-        // Draw completion message
-        StdDraw.clear(Color.black);
-        StdDraw.setPenColor(Color.yellow);
-        StdDraw.setFont(new Font("Monaco", Font.BOLD, 30));
-        StdDraw.text(WIDTH/2.0, HEIGHT/2.0 + 5, "Congratulations!");
-        StdDraw.text(WIDTH/2.0, HEIGHT/2.0, "All coins collected!");
-        StdDraw.text(WIDTH/2.0, HEIGHT/2.0 - 5, "Returning to menu...");
-        StdDraw.show();
+        Font font = new Font("Monaco", Font.BOLD, 30);
+        backend.clear(Color.black);
+        backend.text(WIDTH/2.0, HEIGHT/2.0 + 5, "Congratulations!", font, Color.yellow,
+                RenderBackend.Align.CENTER);
+        backend.text(WIDTH/2.0, HEIGHT/2.0, "All coins collected!", font, Color.yellow,
+                RenderBackend.Align.CENTER);
+        backend.text(WIDTH/2.0, HEIGHT/2.0 - 5, "Returning to menu...", font, Color.yellow,
+                RenderBackend.Align.CENTER);
+        backend.show();
+
+        // The message covered the tiles
+        ter.invalidate();
+    }
 
-        // Restore the original font and color
-        StdDraw.setFont(currentFont);
-        StdDraw.setPenColor(currentColor);
+    // Parks until System.nanoTime() reaches the deadline; parkNanos may return early
+    private static void parkUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
     }
 
     // Helper Methods
 
+    /**
+     * Replays keys from a legacy save.txt, which held every key typed since the world was
+     * generated. Replay stops at ":Q", where the session was saved and quit.
+     */
     public void loadInputHistory(String actions) {
         for (char c : actions.toCharArray()) {
-            // Skip ":Q" if it exists at the end
-            if (c == ':' || c == 'Q' || c == 'q') {
-                continue;
+            if (position.isColonPressed() && (c == 'q' || c == 'Q')) {
+                break;
             }
             processKeypress(c);
         }
+        position.clearColon();
     }
 
     /**
@@ -149,57 +536,73 @@ public class Game {
      * @param key The key that was pressed
      */
     private void processKeypress(char key) {
-
-        if (colonPressed && (key == 'q' || key == 'Q')) {
-            inputHistory.append(":Q");
-            saveToFile(this.SEED, inputHistory.toString());
-            System.exit(0);
+        int event = KeyRules.step(key, position, walls, coins);
+        if (event == KeyRules.QUIT) {
+            if (saveToFile()) {
+                // The save is in place, so the journal has nothing left to recover
+                closeJournal(true);
+                System.exit(0);
+            }
+            // Keep playing, and keep journaling, so nothing is lost; :Q tries again
+            position.clearColon();
+            return;
         }
-
-        if (key == ':') {
-            colonPressed = true;
+        if (event == KeyRules.COLON) {
             return;
-        } else {
-            colonPressed = false;
-            inputHistory.append(key);
+        }
+        keysSinceCheckpoint.append(key);
+        if (journal != null) {
+            journal.append(key);
         }
 
-        boolean moved = false;
+        if (event == KeyRules.TOGGLED_LOS) {
+            vision.toggleLineOfSight();
+        } else if (event == KeyRules.MOVED || event == KeyRules.COLLECTED) {
+            avatar.moveTo(position.getX(), position.getY());
 
-        switch (key) {
-            case 'w':
-            case 'W':
-                moved = avatar.moveUp(world.getWorldGrid());
-                break;
-            case 's':
-            case 'S':
-                moved = avatar.moveDown(world.getWorldGrid());
-                break;
-            case 'a':
-            case 'A':
-                moved = avatar.moveLeft(world.getWorldGrid());
-                break;
-            case 'd':
-            case 'D':
-                moved = avatar.moveRight(world.getWorldGrid());
-                break;
-            case 'l':
-            case 'L':
-                vision.toggleLineOfSight();
-                break;
+            // If line of sight is enabled, update visibility
+            if (vision.isLineOfSightEnabled()) {
+                vision.updateVisibility();
+            }
         }
 
-        // If the avatar moved and line of sight is enabled, update visibility
-        if (moved && vision.isLineOfSightEnabled()) {
-            vision.updateVisibility();
+        if (keysSinceCheckpoint.length() % DIGEST_KEYS == 0) {
+            trail.record(world.digest());
+        }
+        if (keysSinceCheckpoint.length() >= CHECKPOINT_KEYS) {
+            takeCheckpoint();
+        }
+    }
+
+    // Starts a new checkpoint from the current state. Only copied here; the journal's writer
+    // thread does the encoding
+    private void takeCheckpoint() {
+        checkpoint = SaveFile.capture(SEED, saveSlot, world, avatar, vision);
+        keysSinceCheckpoint.setLength(0);
+        trail = new DigestTrail(DIGEST_KEYS, world.digest());
+        if (journal != null) {
+            journal.checkpoint(checkpoint);
+        }
+    }
+
+    // Flushes the journal; there is nothing to recover once the game was saved or finished
+    private void closeJournal(boolean delete) {
+        if (journal != null) {
+            journal.close(delete);
+            journal = null;
         }
     }
 
-    private void saveToFile(long worldSeed, String input) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter("save.txt"))) {
-            writer.write(worldSeed + "\n" + input);
+    // Saves to the save slot; if that fails, says so on the HUD and returns false
+    private boolean saveToFile() {
+        try {
+            new SaveSlots(SaveSlots.DIR).save(saveSlot, SEED, world, checkpoint.encode(),
+                    keysSinceCheckpoint, trail);
+            return true;
         } catch (IOException e) {
-            e.printStackTrace();
+            System.err.println("Could not save: " + e);
+            hud.showStatus("Could not save, :Q to retry");
+            return false;
         }
     }
 
@@ -212,18 +615,18 @@ public class Game {
      * @param world Reference to the world object for coin collection
      * @return A new Avatar positioned at the center-most floor tile
      */
-    private Avatar placeAvatarAtCenterMost(TETile[][] worldGrid, World world) {
-        int centerX = worldGrid.length / 2;
-        int centerY = worldGrid[0].length / 2;
+    static Avatar placeAvatarAtCenterMost(TileGrid worldGrid, World world) {
+        int centerX = worldGrid.width() / 2;
+        int centerY = worldGrid.height() / 2;
         
         int closestDistance = Integer.MAX_VALUE;
         int bestX = -1;
         int bestY = -1;
         
         // Find the floor tile closest to the center
-        for (int x = 0; x < worldGrid.length; x++) {
-            for (int y = 0; y < worldGrid[0].length; y++) {
-                if (worldGrid[x][y] == Tileset.FLOOR) {
+        for (int x = 0; x < worldGrid.width(); x++) {
+            for (int y = 0; y < worldGrid.height(); y++) {
+                if (worldGrid.get(x, y) == Tileset.FLOOR && !world.hasCoinAt(x, y)) {
                     int distance = Math.abs(x - centerX) + Math.abs(y - centerY);
                     
                     // If this tile is closer to center than our current best
@@ -242,10 +645,12 @@ public class Game {
         }
         
         if (bestX == -1 || bestY == -1) {
-            throw new RuntimeException("No floor tiles found to place avatar");
+            String reason = world.getPlacementFailure();
+            throw new RuntimeException("No floor tiles found to place avatar"
+                    + (reason != null ? ": " + reason : ""));
         }
         
-        return new Avatar(bestX, bestY, worldGrid, world);
+        return new Avatar(bestX, bestY, world);
     }
 
 }
\ No newline at end of file
@@ -5,12 +5,30 @@ import edu.princeton.cs.algs4.StdDraw;
 import java.awt.*;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
 import java.util.Scanner;
 
 public class GameMenu {
     private final int WIDTH;
     private final int HEIGHT;
     private final int SCALE = 16;
+    private final InputQueue input = InputQueue.system();
+
+    // Size of the world for a new large map, which the window scrolls over
+    private static final int LARGE_WIDTH = 400;
+    private static final int LARGE_HEIGHT = 200;
+
+    // Save slots listed per page of the load menu, one per digit key
+    private static final int SLOTS_PER_PAGE = 9;
+    private static final DateTimeFormatter SAVED_AT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm").withZone(ZoneId.systemDefault());
 
     // @source From https://introcs.cs.princeton.edu/java/stdlib/javadoc/StdDraw.html
     // I looked up Princeton StdDraw API 
@@ -31,29 +49,131 @@ public class GameMenu {
             StdDraw.pause(3000); // Show victory screen for 3 seconds
         }
         
-        drawMainMenuText();
-        char choice = waitForMenuInput();
+        while (true) {
+            drawMainMenuText();
+            char choice = waitForMenuInput();
 
-        if (choice == 'n') {
-            // Go to seed input
-            long seed = getSeedInput();
-            return new Game(WIDTH, HEIGHT, seed);
+            if (choice == 'n') {
+                // Go to seed input
+                long seed = getSeedInput();
+                return new Game(WIDTH, HEIGHT, seed);
 
-        } else if (choice == 'l') {
-            // Load previous game
-            return loadSavedGame();
+            } else if (choice == 'm') {
+                // A world larger than the window, which scrolls to follow the avatar
+                long seed = getSeedInput();
+                return new Game(WIDTH, HEIGHT, LARGE_WIDTH, LARGE_HEIGHT, seed);
 
-        } else {
-            // Save and exit
-            System.exit(0);
-        }
+            } else if (choice == 'c') {
+                // An endless world generated chunk by chunk; :Q comes back to this menu
+                long seed = getSeedInput();
+                new ChunkedGame(WIDTH, HEIGHT, seed).run();
 
-        return null;
+            } else if (choice == 'l') {
+                // Load a saved game, or go back to the menu if none was picked
+                Game loaded = chooseSaveSlot();
+                if (loaded != null) {
+                    return loaded;
+                }
+
+            } else {
+                // Save and exit
+                System.exit(0);
+            }
+        }
     }
 
 
     // Helper Methods
 
+    /**
+     * Offers to resume the game left in the journal if the last game did not end with :Q or
+     * by collecting every coin, e.g. because it crashed or its window was closed. Every key
+     * that reached the disk is replayed. A journal the player declines is deleted, and one
+     * that cannot be read is renamed aside so it is not offered again.
+     *
+     * @return The recovered game, or null if there is nothing to recover
+     */
+    public Game recoverJournal() {
+        if (!Files.exists(InputJournal.PATH)) {
+            return null;
+        }
+        try {
+            if (!askToResume()) {
+                Files.deleteIfExists(InputJournal.PATH);
+                return null;
+            }
+            SaveFile recovered = InputJournal.recover(InputJournal.PATH);
+            return recovered == null ? null : new Game(recovered, WIDTH, HEIGHT);
+        } catch (IOException e) {
+            Path damaged = InputJournal.PATH.resolveSibling(InputJournal.PATH.getFileName()
+                    + ".damaged");
+            System.err.println("Could not recover the journal, moved it to " + damaged + ": "
+                    + e.getMessage());
+            try {
+                Files.move(InputJournal.PATH, damaged, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException moveFailed) {
+                System.err.println("Could not move the journal: " + moveFailed.getMessage());
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Lists the save slots, SLOTS_PER_PAGE at a time, and loads the one the player picks.
+     * Only the slot index is read to list them; a slot's thumbnail is read when it is
+     * selected and its save when it is loaded. Without any slots, the save.txt from before there
+     * were slots is loaded.
+     *
+     * @return The loaded game, or null if the player went back to the main menu
+     */
+    public Game chooseSaveSlot() {
+        SaveSlots saves = new SaveSlots(SaveSlots.DIR);
+        List<SaveSlots.Slot> slots;
+        try {
+            slots = saves.list();
+        } catch (IOException e) {
+            System.err.println("Could not read the save slots: " + e.getMessage());
+            slots = List.of();
+        }
+        if (slots.isEmpty()) {
+            return loadSavedGame();
+        }
+
+        int page = 0;
+        int pages = (slots.size() + SLOTS_PER_PAGE - 1) / SLOTS_PER_PAGE;
+        SaveSlots.Slot selected = null;
+        SaveSlots.Thumbnail thumbnail = null;
+        while (true) {
+            drawSaveSlots(slots, page, pages, selected, thumbnail);
+            char c = Character.toLowerCase(input.take().character());
+            if (c >= '1' && c <= '9') {
+                int i = page * SLOTS_PER_PAGE + (c - '1');
+                if (i < slots.size() && slots.get(i) != selected) {
+                    selected = slots.get(i);
+                    try {
+                        thumbnail = saves.thumbnail(selected);
+                    } catch (IOException e) {
+                        thumbnail = null;
+                    }
+                }
+            } else if (c == '[' && page > 0) {
+                page -= 1;
+            } else if (c == ']' && page < pages - 1) {
+                page += 1;
+            } else if ((c == '\n' || c == '\r') && selected != null) {
+                try {
+                    return new Game(saves.load(selected), WIDTH, HEIGHT);
+                } catch (IOException e) {
+                    System.err.println("Could not load " + selected.getName() + ": "
+                            + e.getMessage());
+                }
+            } else if (c == 'b') {
+                return null;
+            }
+        }
+    }
+
+    // Loads a save.txt from before there were save slots
     public Game loadSavedGame() {
         try {
             Scanner sc = new Scanner(new File("save.txt"));
@@ -68,15 +188,28 @@ public class GameMenu {
     }
 
 
-    // Wait for player input on main menu
+    // Ask whether to resume the game left in the journal; Y or N
+    private boolean askToResume() {
+        StdDraw.clear(Color.black);
+        StdDraw.setPenColor(Color.white);
+        StdDraw.setFont(new Font("Courier New", Font.BOLD, 30));
+        StdDraw.text(this.WIDTH/2.0, this.HEIGHT/1.5, "Resume unfinished game?");
+        StdDraw.text(this.WIDTH/2.0, this.HEIGHT/2.2, "(Y) Yes   (N) No");
+        StdDraw.show();
+        while (true) {
+            char c = Character.toLowerCase(input.take().character());
+            if (c == 'y' || c == 'n') {
+                return c == 'y';
+            }
+        }
+    }
+
+    // Wait for player input on main menu; take() blocks, so the menu uses no CPU while idle
     private char waitForMenuInput() {
         while(true) {
-            if (StdDraw.hasNextKeyTyped()) {
-                char c = StdDraw.nextKeyTyped();
-                c = Character.toLowerCase(c);
-                if (c == 'n' || c == 'l' || c == 'q') {
-                    return c;
-                }
+            char c = Character.toLowerCase(input.take().character());
+            if (c == 'n' || c == 'm' || c == 'c' || c == 'l' || c == 'q') {
+                return c;
             }
         }
     }
@@ -93,11 +226,58 @@ public class GameMenu {
         StdDraw.setPenColor(Color.white);
         StdDraw.setFont(new Font("Courier New", Font.BOLD, 30));
         StdDraw.text(this.WIDTH/2.0, this.HEIGHT/2.2, "(N) New Game");
-        StdDraw.text(this.WIDTH/2.0, this.HEIGHT/2.8, "(L) Load Game");
-        StdDraw.text(this.WIDTH/2.0, this.HEIGHT/3.8, "(Q) Quit Game");
+        StdDraw.text(this.WIDTH/2.0, this.HEIGHT/2.6, "(M) New Large Map");
+        StdDraw.text(this.WIDTH/2.0, this.HEIGHT/3.1, "(C) Explore Chunked Map");
+        StdDraw.text(this.WIDTH/2.0, this.HEIGHT/3.8, "(L) Load Game");
+        StdDraw.text(this.WIDTH/2.0, this.HEIGHT/4.9, "(Q) Quit Game");
         StdDraw.show();
     }
     
+    // Draw one page of save slots, and the selected slot's details and thumbnail
+    private void drawSaveSlots(List<SaveSlots.Slot> slots, int page, int pages,
+                               SaveSlots.Slot selected, SaveSlots.Thumbnail thumbnail) {
+        StdDraw.clear(Color.black);
+        StdDraw.setPenColor(Color.yellow);
+        StdDraw.setFont(new Font("Courier New", Font.BOLD, 30));
+        StdDraw.text(this.WIDTH/2.0, this.HEIGHT - 3, "Load Game");
+
+        StdDraw.setFont(new Font("Courier New", Font.BOLD, 18));
+        int first = page * SLOTS_PER_PAGE;
+        for (int i = first; i < Math.min(slots.size(), first + SLOTS_PER_PAGE); i++) {
+            SaveSlots.Slot slot = slots.get(i);
+            StdDraw.setPenColor(slot == selected ? Color.yellow : Color.white);
+            StdDraw.textLeft(3, this.HEIGHT - 7 - 3 * (i - first),
+                    "(" + (i - first + 1) + ") " + slot.getName());
+        }
+
+        if (selected != null) {
+            // The thumbnail in the right half, one menu cell per thumbnail tile
+            double left = this.WIDTH * 0.75;
+            double top = this.HEIGHT - 7;
+            if (thumbnail != null) {
+                left -= thumbnail.width() / 2.0;
+                for (int x = 0; x < thumbnail.width(); x++) {
+                    for (int y = 0; y < thumbnail.height(); y++) {
+                        thumbnail.get(x, y).draw(left + x, top - thumbnail.height() + y);
+                    }
+                }
+                top -= thumbnail.height();
+            }
+            StdDraw.setFont(new Font("Courier New", Font.BOLD, 18));
+            StdDraw.setPenColor(Color.white);
+            StdDraw.text(this.WIDTH * 0.75, top - 2, "Seed " + selected.getSeed() + "   Coins "
+                    + selected.getCollectedCoins() + "/" + selected.getTotalCoins());
+            StdDraw.text(this.WIDTH * 0.75, top - 4, "Saved " + SAVED_AT.format(
+                    Instant.ofEpochMilli(selected.getSavedAt())));
+        }
+
+        StdDraw.setPenColor(Color.gray);
+        StdDraw.setFont(new Font("Courier New", Font.BOLD, 16));
+        StdDraw.text(this.WIDTH/2.0, 2, "1-9 select   Enter load   [ ] page " + (page + 1)
+                + "/" + pages + "   B back");
+        StdDraw.show();
+    }
+
     // Draw victory screen when all coins are collected
     private void drawVictoryScreen() {
         StdDraw.clear(Color.black);
@@ -124,23 +304,20 @@ public class GameMenu {
     private long getSeedInput() {
         String seedStr = "";
         while(true) {
-            if (StdDraw.hasNextKeyTyped()) {
-                char c = StdDraw.nextKeyTyped();
-                c = Character.toLowerCase(c);
-                if (Character.isDigit(c)) {
-                    seedStr += c;
-                } else if (c == 's') {
-                    break;
-                }
-
-                // Redraw screen with user input
-                StdDraw.clear(Color.black);
-                StdDraw.setPenColor(Color.white);
-                StdDraw.text(this.WIDTH/2.0, this.HEIGHT/1.5, "Enter game seed followed by S...");
-                StdDraw.setPenColor(Color.yellow);
-                StdDraw.text(WIDTH / 2.0, HEIGHT/2.2, seedStr);
-                StdDraw.show();
+            char c = Character.toLowerCase(input.take().character());
+            if (Character.isDigit(c)) {
+                seedStr += c;
+            } else if (c == 's') {
+                break;
             }
+
+            // Redraw screen with user input
+            StdDraw.clear(Color.black);
+            StdDraw.setPenColor(Color.white);
+            StdDraw.text(this.WIDTH/2.0, this.HEIGHT/1.5, "Enter game seed followed by S...");
+            StdDraw.setPenColor(Color.yellow);
+            StdDraw.text(WIDTH / 2.0, HEIGHT/2.2, seedStr);
+            StdDraw.show();
         }
 
         return Long.parseLong(seedStr);
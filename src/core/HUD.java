@@ -1,47 +1,168 @@
 package core;
 
-import edu.princeton.cs.algs4.StdDraw;
+import tileengine.Camera;
+import tileengine.Overlay;
+import tileengine.RenderBackend;
 import tileengine.TETile;
+import tileengine.TileGrid;
 
 import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Objects;
+
+/**
+ * The text at the top of the window: the tile under the pointer, the coin count, whether
+ * line of sight is on and the last status message, e.g. that saving failed. It is drawn as
+ * the renderer's overlay, so it is shown in the same frame as the tiles. The text is only
+ * laid out again when what it says changes; on backends with a surface it is kept as a
+ * transparent image that is copied over each frame.
+ */
+public class HUD implements Overlay {
+    // Rows at the top of the window the HUD draws over; the text on the second row hangs
+    // into the third
+    public static final int ROWS = 3;
+
+    private static final int TILE_SIZE = 16;
+    private static final Font FONT = new Font("Monospaced", Font.PLAIN, 16);
 
-public class HUD {
     private final int WIDTH;
     private final int HEIGHT;
-    private final TETile[][] tiles;
-    private final World world;
-    private final Vision vision;
+    private final TileGrid tiles;
+    private final Camera camera;
+    private final RenderBackend backend;
+
+    // What the text currently says
+    private String tileDescription;
+    private boolean lineOfSightEnabled;
+    private int collectedCoins = -1;
+    private int totalCoins = -1;
+    private String tileText;
+    private String losText;
+    private String coinText;
+    private String statusText;
 
-    
-    public HUD(int width, int height, TETile[][] tiles, World world, Vision vision){
+    // Set by the game thread, shown from the next update()
+    private volatile String status = "";
+
+    // The text rendered at the surface's pixel scale, and whether the text changed since it
+    // was rendered
+    private BufferedImage layer;
+    private double layerScale;
+    private boolean layerStale = true;
+
+    public HUD(int width, int height, TileGrid tiles, Camera camera, RenderBackend backend){
         this.WIDTH = width;
         this.HEIGHT = height;
         this.tiles = tiles;
-        this.world = world;
-        this.vision = vision;
+        this.camera = camera;
+        this.backend = backend;
+    }
+
+    /**
+     * Shows a message on the second row until another one replaces it. Can be called from
+     * any thread.
+     *
+     * @param message The message, or "" to clear it
+     */
+    public void showStatus(String message) {
+        this.status = message;
+    }
+
+    /**
+     * Updates the text for a snapshot of the game, so it can run on the render thread. Call
+     * this before the frame is rendered; nothing is allocated unless the text changes.
+     */
+    public void update(WorldSnapshot snapshot) {
+        String desc = null;
+        double pointerX = backend.mouseX();
+        double pointerY = backend.mouseY();
+        if (pointerX >= 0 && pointerX < WIDTH && pointerY >= 0 && pointerY < HEIGHT) {
+            int mouseX = camera.toWorldX(pointerX);
+            int mouseY = camera.toWorldY(pointerY);
+            if (tiles.inBounds(mouseX, mouseY)) {
+                TETile entity = snapshot.getEntities().get(mouseX, mouseY);
+                desc = (entity != null ? entity : tiles.get(mouseX, mouseY)).description();
+            }
+        }
+
+        boolean los = snapshot.isLineOfSightEnabled();
+        int collected = snapshot.getCollectedCoins();
+        int total = snapshot.getTotalCoins();
+        String message = status;
+        if (tileText != null && Objects.equals(desc, tileDescription)
+                && los == lineOfSightEnabled && collected == collectedCoins && total == totalCoins
+                && message.equals(statusText)) {
+            return;
+        }
+
+        tileDescription = desc;
+        lineOfSightEnabled = los;
+        collectedCoins = collected;
+        totalCoins = total;
+        tileText = desc != null ? "Current Tile: " + desc : "";
+        losText = "Line of Sight: " + (los ? "ON" : "OFF") + " (L to toggle)";
+        coinText = "Coins: " + collected + "/" + total;
+        statusText = message;
+        layerStale = true;
     }
 
-    public void draw() {
-        StdDraw.setPenColor(Color.red);
-        StdDraw.setFont(new Font("Monospaced", Font.PLAIN, 16));
-        int mouseX = (int) StdDraw.mouseX();
-        int mouseY = (int) StdDraw.mouseY();
-        
-        // Display tile under cursor
-        if (mouseX >= 0 && mouseX < WIDTH && mouseY >= 0 && mouseY < HEIGHT) {
-            String desc = tiles[mouseX][mouseY].description();
-            StdDraw.textLeft(1, this.HEIGHT - 1, "Current Tile: " + desc);
+    @Override
+    public void draw(RenderBackend target) {
+        if (tileText == null) {
+            return;
+        }
+        Graphics2D surface = target.surface();
+        if (surface == null) {
+            drawText(target);
+            return;
         }
-        
-        // Show line of sight status if world reference is available
-        if (world != null) {
-            String losStatus = vision.isLineOfSightEnabled() ? "ON" : "OFF";
-            StdDraw.textRight(this.WIDTH - 1, this.HEIGHT - 1, "Line of Sight: " + losStatus + " (L to toggle)");
-            
-            // Display coin count
-            StdDraw.textLeft(1, this.HEIGHT - 2, "Coins: " + world.getCollectedCoins() + "/" + world.getTotalCoins());
+
+        double scale = surface.getTransform().getScaleX();
+        if (layerStale || scale != layerScale) {
+            renderLayer(scale);
         }
-        
-        StdDraw.show();
+        surface.drawImage(layer, 0, 0, WIDTH * TILE_SIZE, ROWS * TILE_SIZE, null);
+    }
+
+    // Helper Methods
+
+    private void drawText(RenderBackend target) {
+        target.text(1, this.HEIGHT - 1, tileText, FONT, Color.red, RenderBackend.Align.LEFT);
+        target.text(this.WIDTH - 1, this.HEIGHT - 1, losText, FONT, Color.red,
+                RenderBackend.Align.RIGHT);
+        target.text(1, this.HEIGHT - 2, coinText, FONT, Color.red, RenderBackend.Align.LEFT);
+        target.text(this.WIDTH - 1, this.HEIGHT - 2, statusText, FONT, Color.red,
+                RenderBackend.Align.RIGHT);
+    }
+
+    // Renders the text into a transparent image covering the top ROWS rows, placed the way
+    // the backends place text: vertically centered on its row using the font's descent
+    private void renderLayer(double scale) {
+        int w = Math.max(1, (int) Math.ceil(WIDTH * TILE_SIZE * scale));
+        int h = Math.max(1, (int) Math.ceil(ROWS * TILE_SIZE * scale));
+        if (layer == null || layer.getWidth() != w || layer.getHeight() != h) {
+            layer = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        }
+        layerScale = scale;
+        layerStale = false;
+
+        Graphics2D g = layer.createGraphics();
+        g.setComposite(AlphaComposite.Clear);
+        g.fillRect(0, 0, w, h);
+        g.setComposite(AlphaComposite.SrcOver);
+        g.scale(scale, scale);
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
+                RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setFont(FONT);
+        g.setColor(Color.red);
+        FontMetrics metrics = g.getFontMetrics();
+        int descent = metrics.getDescent();
+        g.drawString(tileText, TILE_SIZE, TILE_SIZE + descent);
+        g.drawString(losText, (WIDTH - 1) * TILE_SIZE - metrics.stringWidth(losText),
+                TILE_SIZE + descent);
+        g.drawString(coinText, TILE_SIZE, 2 * TILE_SIZE + descent);
+        g.drawString(statusText, (WIDTH - 1) * TILE_SIZE - metrics.stringWidth(statusText),
+                2 * TILE_SIZE + descent);
+        g.dispose();
     }
 }
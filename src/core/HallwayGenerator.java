@@ -1,11 +1,10 @@
 package core;
 
-import tileengine.TETile;
+import tileengine.BitGrid;
+import tileengine.TileGrid;
 import tileengine.Tileset;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -14,75 +13,234 @@ import java.util.List;
  * all rooms are connected with minimal total hallway length.
  */
 public class HallwayGenerator {
-    private final TETile[][] worldGrid;
+    // Up to this many rooms, every pair of rooms is a candidate hallway
+    private static final int ALL_PAIRS_ROOM_LIMIT = 64;
+    // Candidate hallways per room when there are more rooms than that
+    private static final int NEAREST_NEIGHBOURS = 8;
+
+    // The most candidate edges an array can hold
+    private static final int MAX_EDGES = Integer.MAX_VALUE - 8;
+
+    // Bits per room index in a packed edge
+    private static final int ROOM_BITS = 21;
+    private static final long ROOM_MASK = (1L << ROOM_BITS) - 1;
+
+    private final TileGrid worldGrid;
     private final List<Room> rooms;
 
     /**
      * Constructor for the HallwayGenerator.
-     * @param worldGrid The 2D grid representing the world
+     * @param worldGrid The tile grid representing the world
      * @param rooms List of rooms that need to be connected
      */
-    public HallwayGenerator(TETile[][] worldGrid, List<Room> rooms) {
+    public HallwayGenerator(TileGrid worldGrid, List<Room> rooms) {
         this.worldGrid = worldGrid;
         this.rooms = rooms;
     }
 
     /**
      * Connects all rooms with hallways using Kruskal's minimum spanning tree algorithm.
+     * Small room counts consider every pair of rooms. Larger ones only consider each room's
+     * nearest neighbours, found through a grid over the room centers, and double the
+     * neighbourhood while that leaves the rooms disconnected; once it holds every other room
+     * the rooms are always connected, so they never fall back to every pair.
      */
     public void connectRoomsWithHallways() {
-        // 1. Create a disjoint set with one set per room
-        DisjointSet ds = new DisjointSet(rooms.size());
-        
-        // 2. Create a list of all possible edges (connections between rooms)
-        List<Edge> edges = new ArrayList<>();
-        for (int i = 0; i < rooms.size(); i++) {
-            for (int j = i + 1; j < rooms.size(); j++) {
-                Room roomA = rooms.get(i);
-                Room roomB = rooms.get(j);
-                int distance = calculateManhattanDistance(roomA, roomB);
-                edges.add(new Edge(i, j, distance));
+        int n = rooms.size();
+        if (n < 2) {
+            return;
+        }
+        if (n >= 1 << ROOM_BITS) {
+            throw new IllegalArgumentException("Too many rooms to connect: " + n);
+        }
+
+        int[] centerX = new int[n];
+        int[] centerY = new int[n];
+        for (int i = 0; i < n; i++) {
+            centerX[i] = rooms.get(i).getStartX() + rooms.get(i).getWidth() / 2;
+            centerY[i] = rooms.get(i).getStartY() + rooms.get(i).getHeight() / 2;
+        }
+
+        int neighbours = NEAREST_NEIGHBOURS;
+        while (true) {
+            // 1. Collect candidate edges, packed as (distance, from, to) so that sorting the
+            //    longs orders them the same way as a stable sort by distance
+            long[] edges;
+            if (n <= ALL_PAIRS_ROOM_LIMIT) {
+                edges = allPairEdges(centerX, centerY);
+            } else {
+                edges = nearestNeighbourEdges(centerX, centerY, Math.min(neighbours, n - 1));
+            }
+            Arrays.sort(edges);
+
+            // 2. Process edges in order of increasing distance
+            DisjointSet ds = new DisjointSet(n);
+            long[] tree = new long[n - 1];
+            int treeSize = 0;
+            for (long edge : edges) {
+                int i = edgeFrom(edge);
+                int j = edgeTo(edge);
+                if (!ds.isConnected(i, j)) {
+                    ds.union(i, j);
+                    tree[treeSize++] = edge;
+                    if (ds.isAllConnected()) {
+                        break;
+                    }
+                }
+            }
+
+            // 3. Carve the hallways once the candidates are known to span every room
+            if (ds.isAllConnected()) {
+                for (int e = 0; e < treeSize; e++) {
+                    createHallway(rooms.get(edgeFrom(tree[e])), rooms.get(edgeTo(tree[e])));
+                }
+                return;
             }
+            neighbours *= 2;
         }
-        
-        // 3. Sort edges by distance (ascending)
-        Collections.sort(edges, Comparator.comparingInt(e -> e.distance));
-        
-        // 4. Process edges in order of increasing distance
-        for (Edge edge : edges) {
-            int i = edge.from;
-            int j = edge.to;
-            
-            // If the rooms are not already connected
-            if (!ds.isConnected(i, j)) {
-                // Connect rooms with a hallway
-                createHallway(rooms.get(i), rooms.get(j));
-                
-                // Merge the sets
-                ds.union(i, j);
-                
-                // Optional: If all rooms are connected, we can stop
-                if (ds.isAllConnected()) {
+    }
+
+    /**
+     * Builds an edge between every pair of rooms. Only used for up to ALL_PAIRS_ROOM_LIMIT
+     * rooms, so the number of pairs is small.
+     * @param centerX x-coordinates of the room centers
+     * @param centerY y-coordinates of the room centers
+     * @return packed edges, see packEdge
+     */
+    private long[] allPairEdges(int[] centerX, int[] centerY) {
+        int n = centerX.length;
+        long[] edges = new long[n * (n - 1) / 2];
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                int distance = Math.abs(centerX[i] - centerX[j]) + Math.abs(centerY[i] - centerY[j]);
+                edges[count++] = packEdge(distance, i, j);
+            }
+        }
+        return edges;
+    }
+
+    /**
+     * Builds an edge from every room to its k nearest rooms by Manhattan distance between
+     * centers. Centers are bucketed into square cells, and each room searches rings of cells
+     * outward until no closer room can remain.
+     * @param centerX x-coordinates of the room centers
+     * @param centerY y-coordinates of the room centers
+     * @param k number of neighbours per room
+     * @return packed edges, see packEdge; an edge may appear twice
+     * @throws IllegalStateException if n * k edges are more than an array can hold
+     */
+    private long[] nearestNeighbourEdges(int[] centerX, int[] centerY, int k) {
+        int n = centerX.length;
+        if ((long) n * k > MAX_EDGES) {
+            throw new IllegalStateException("Too many candidate hallways: " + n + " rooms with "
+                    + k + " neighbours each");
+        }
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            minX = Math.min(minX, centerX[i]);
+            maxX = Math.max(maxX, centerX[i]);
+            minY = Math.min(minY, centerY[i]);
+            maxY = Math.max(maxY, centerY[i]);
+        }
+
+        // Aim for about two rooms per cell
+        long area = (long) (maxX - minX + 1) * (maxY - minY + 1);
+        int cellSize = Math.max(1, (int) Math.ceil(Math.sqrt(2.0 * area / n)));
+        int columns = (maxX - minX) / cellSize + 1;
+        int rows = (maxY - minY) / cellSize + 1;
+
+        // Counting sort of rooms by cell
+        int[] cellOf = new int[n];
+        int[] cellStart = new int[columns * rows + 1];
+        for (int i = 0; i < n; i++) {
+            cellOf[i] = ((centerY[i] - minY) / cellSize) * columns + (centerX[i] - minX) / cellSize;
+            cellStart[cellOf[i] + 1]++;
+        }
+        for (int c = 0; c < columns * rows; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        int[] cellRooms = new int[n];
+        int[] fill = Arrays.copyOf(cellStart, columns * rows);
+        for (int i = 0; i < n; i++) {
+            cellRooms[fill[cellOf[i]]++] = i;
+        }
+
+        long[] edges = new long[n * k];
+        int count = 0;
+        // Best candidates so far for the current room, packed as (distance, room) and kept sorted
+        long[] best = new long[k];
+        for (int i = 0; i < n; i++) {
+            int found = 0;
+            int column = cellOf[i] % columns;
+            int row = cellOf[i] / columns;
+            for (int ring = 0; ring <= Math.max(columns, rows); ring++) {
+                for (int dy = -ring; dy <= ring; dy++) {
+                    int y = row + dy;
+                    if (y < 0 || y >= rows) {
+                        continue;
+                    }
+                    // Inner rows of the ring only have their two end cells
+                    int step = (dy == -ring || dy == ring) ? 1 : Math.max(1, 2 * ring);
+                    for (int dx = -ring; dx <= ring; dx += step) {
+                        int x = column + dx;
+                        if (x < 0 || x >= columns) {
+                            continue;
+                        }
+                        int cell = y * columns + x;
+                        for (int c = cellStart[cell]; c < cellStart[cell + 1]; c++) {
+                            int j = cellRooms[c];
+                            if (j == i) {
+                                continue;
+                            }
+                            int distance = Math.abs(centerX[i] - centerX[j]) + Math.abs(centerY[i] - centerY[j]);
+                            found = insertCandidate(best, found, ((long) distance << ROOM_BITS) | j);
+                        }
+                    }
+                }
+                // Rooms in later rings are more than ring * cellSize away
+                if (found == k && (best[k - 1] >>> ROOM_BITS) <= (long) ring * cellSize) {
                     break;
                 }
             }
+            for (int b = 0; b < found; b++) {
+                int j = (int) (best[b] & ROOM_MASK);
+                int distance = (int) (best[b] >>> ROOM_BITS);
+                edges[count++] = packEdge(distance, Math.min(i, j), Math.max(i, j));
+            }
         }
+        return Arrays.copyOf(edges, count);
     }
 
     /**
-     * Calculates Manhattan distance between two rooms.
-     * @param a First room
-     * @param b Second room
-     * @return Manhattan distance between room centers
+     * Inserts a candidate into a sorted array holding the best candidates so far, dropping
+     * the worst one if the array is full.
+     * @return the new number of candidates
      */
-    private int calculateManhattanDistance(Room a, Room b) {
-        // Calculate distance between room centers
-        int centerAX = a.getStartX() + a.getWidth() / 2;
-        int centerAY = a.getStartY() + a.getHeight() / 2;
-        int centerBX = b.getStartX() + b.getWidth() / 2;
-        int centerBY = b.getStartY() + b.getHeight() / 2;
-        
-        return Math.abs(centerAX - centerBX) + Math.abs(centerAY - centerBY);
+    private static int insertCandidate(long[] best, int found, long candidate) {
+        if (found == best.length && candidate >= best[found - 1]) {
+            return found;
+        }
+        int pos = found == best.length ? found - 1 : found;
+        while (pos > 0 && best[pos - 1] > candidate) {
+            best[pos] = best[pos - 1];
+            pos--;
+        }
+        best[pos] = candidate;
+        return Math.min(found + 1, best.length);
+    }
+
+    private static long packEdge(int distance, int from, int to) {
+        return ((long) distance << (2 * ROOM_BITS)) | ((long) from << ROOM_BITS) | to;
+    }
+
+    private static int edgeFrom(long edge) {
+        return (int) ((edge >>> ROOM_BITS) & ROOM_MASK);
+    }
+
+    private static int edgeTo(long edge) {
+        return (int) (edge & ROOM_MASK);
     }
 
     /**
@@ -145,6 +303,18 @@ public class HallwayGenerator {
         return new int[]{x, y};
     }
 
+    /**
+     * Carves a hallway between two points that runs vertically from the first point, then
+     * horizontally to the second.
+     * @param x1 X-coordinate of first point
+     * @param y1 Y-coordinate of first point
+     * @param x2 X-coordinate of second point
+     * @param y2 Y-coordinate of second point
+     */
+    public void carveHallway(int x1, int y1, int x2, int y2) {
+        createLShapedHallway(x1, y1, x2, y2);
+    }
+
     /**
      * Creates an L-shaped hallway between two points.
      * @param x1 X-coordinate of first point
@@ -159,83 +329,36 @@ public class HallwayGenerator {
         
         // Create first segment (from first point to corner)
         for (int x = Math.min(x1, cornerX); x <= Math.max(x1, cornerX); x++) {
-            worldGrid[x][y1] = Tileset.FLOOR;
+            worldGrid.set(x, y1, Tileset.FLOOR);
         }
         
         // Create second segment (from corner to second point)
         for (int y = Math.min(y1, cornerY); y <= Math.max(y1, cornerY); y++) {
-            worldGrid[cornerX][y] = Tileset.FLOOR;
+            worldGrid.set(cornerX, y, Tileset.FLOOR);
         }
         
         // Create third segment if needed (from corner to second point along X-axis)
         for (int x = Math.min(cornerX, x2); x <= Math.max(cornerX, x2); x++) {
-            worldGrid[x][cornerY] = Tileset.FLOOR;
+            worldGrid.set(x, cornerY, Tileset.FLOOR);
         }
     }
 
     /**
-     * Adds walls around all hallways.
+     * Adds walls around all hallways. Floor and empty cells are turned into bit masks, and
+     * the walls are the dilated floor mask restricted to empty cells.
+     * @return the floor mask the walls were built from
      */
-    public void addWallsAroundHallways() {
-        int width = worldGrid.length;
-        int height = worldGrid[0].length;
-        
-        // Create a temporary copy of the world to avoid adding walls that would
-        // be overwritten by floors
-        TETile[][] tempWorld = new TETile[width][height];
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                tempWorld[x][y] = worldGrid[x][y];
-            }
-        }
-        
-        // For each tile in the world
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                // If it's a floor tile
-                if (worldGrid[x][y] == Tileset.FLOOR) {
-                    // Check all 8 surrounding tiles
-                    for (int dx = -1; dx <= 1; dx++) {
-                        for (int dy = -1; dy <= 1; dy++) {
-                            // Skip the center tile
-                            if (dx == 0 && dy == 0) {
-                                continue;
-                            }
-                            
-                            int nx = x + dx;
-                            int ny = y + dy;
-                            
-                            // Ensure we're within bounds
-                            if (nx >= 0 && nx < width && ny >= 0 && ny < height) {
-                                // If the tile is nothing (not a floor tile and not already a wall)
-                                if (worldGrid[nx][ny] == Tileset.NOTHING) {
-                                    tempWorld[nx][ny] = Tileset.WALL;
-                                }
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        
-        // Update the world with the walls
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                worldGrid[x][y] = tempWorld[x][y];
-            }
-        }
-    }
+    public BitGrid addWallsAroundHallways() {
+        BitGrid floor = worldGrid.mask(Tileset.FLOOR);
 
-    /**
-     * Helper class to represent a connection between two rooms.
-     */
-    private static class Edge {
-        int from, to, distance;
-        
-        public Edge(int from, int to, int distance) {
-            this.from = from;
-            this.to = to;
-            this.distance = distance;
-        }
+        // Every cell with a floor tile in its 8-neighbourhood
+        BitGrid walls = floor.dilate();
+
+        // Walls only replace nothing tiles, never floors or walls
+        walls.and(worldGrid.mask(Tileset.NOTHING));
+
+        // Update the world with the walls
+        worldGrid.paint(walls, Tileset.WALL);
+        return floor;
     }
-} 
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,266 @@
+package core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of the keys a game accepted, so a crash loses at most the last few
+ * keys instead of the whole session. The game thread only queues keys; a background writer
+ * appends them and syncs the file to disk once FSYNC_RECORDS keys are waiting or FSYNC_MS
+ * after the first unsynced key, whichever comes first.
+ *
+ * A journal file starts with a game checkpoint (see SaveFile), followed by one record per key
+ * typed since. At every new checkpoint the writer encodes it, starts a new journal with it and
+ * moves it over the old one, so the journal never holds more keys than the game has between
+ * checkpoints, and the game thread never spends time deflating checkpoints.
+ *
+ * Layout, big-endian:
+ *   header:   magic "BYOJ", version, checkpoint length, checkpoint, CRC-32 of the checkpoint
+ *   records:  the key (a char) and the CRC-32 of the record's index and key
+ */
+public class InputJournal {
+    public static final Path PATH = Path.of("journal.bin");
+
+    private static final int MAGIC = 0x42594F4A; // "BYOJ"
+    private static final int VERSION = 1;
+    private static final int RECORD_BYTES = 6;
+
+    // Group commit: sync after this many records, or this long after the first unsynced one
+    private static final int FSYNC_RECORDS = 64;
+    private static final long FSYNC_MS = 50;
+
+    private static final Object CLOSE = new Object();
+
+    private final Path path;
+    private final BlockingQueue<Object> commands = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile boolean failed;
+
+    // Only touched by the writer thread
+    private FileChannel channel;
+    private final ByteBuffer pending = ByteBuffer.allocate(FSYNC_RECORDS * RECORD_BYTES);
+    private final CRC32 crc = new CRC32();
+    private int records;
+    private int unsynced;
+    private long syncDeadline;
+
+    /**
+     * Starts a new journal at path, replacing any journal there once the checkpoint is
+     * written.
+     *
+     * @param path Where to keep the journal
+     * @param checkpoint The game state the journal starts from, from SaveFile.capture
+     */
+    public InputJournal(Path path, SaveFile.Checkpoint checkpoint) {
+        this.path = path;
+        commands.add(checkpoint);
+        this.writer = new Thread(this::writeLoop, "journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues a key to be appended. Never waits for the disk.
+     *
+     * @param key The key the game accepted
+     */
+    public void append(char key) {
+        if (!failed) {
+            commands.add(key);
+        }
+    }
+
+    /**
+     * Queues a new checkpoint; the keys appended after it start a new journal. Never waits
+     * for the disk, and the checkpoint is encoded by the writer.
+     *
+     * @param checkpoint The game state, from SaveFile.capture
+     */
+    public void checkpoint(SaveFile.Checkpoint checkpoint) {
+        if (!failed) {
+            commands.add(checkpoint);
+        }
+    }
+
+    /**
+     * Writes and syncs everything queued, then stops the writer. Waits for the disk, so only
+     * call this when the game ends.
+     *
+     * @param delete whether to delete the journal afterwards, e.g. because the game was saved
+     *               or finished and there is nothing left to recover
+     */
+    public void close(boolean delete) {
+        commands.add(CLOSE);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (delete) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Reads back a journal left by a game that did not close it, e.g. after a crash. Records
+     * are read up to the first one that is incomplete or fails its checksum.
+     *
+     * @param path The journal
+     * @return The checkpoint and the keys after it as a save, or null if there is no journal
+     * @throws IOException if the journal cannot be read or its header is damaged
+     */
+    public static SaveFile recover(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(path));
+        if (data.remaining() < 10 || data.getInt() != MAGIC) {
+            throw new IOException("Not a journal");
+        }
+        int version = data.getShort() & 0xFFFF;
+        if (version != VERSION) {
+            throw new IOException("Unsupported journal version " + version);
+        }
+        int length = data.getInt();
+        if (length < 0 || data.remaining() < length + 4) {
+            throw new IOException("Journal checkpoint is truncated");
+        }
+        byte[] checkpoint = new byte[length];
+        data.get(checkpoint);
+        CRC32 crc = new CRC32();
+        crc.update(checkpoint);
+        if ((int) crc.getValue() != data.getInt()) {
+            throw new IOException("Journal checkpoint is damaged");
+        }
+
+        StringBuilder keys = new StringBuilder();
+        while (data.remaining() >= RECORD_BYTES) {
+            char key = data.getChar();
+            if (recordChecksum(crc, keys.length(), key) != data.getInt()) {
+                break;
+            }
+            keys.append(key);
+        }
+        return SaveFile.fromCheckpoint(checkpoint, keys);
+    }
+
+    // Helper Methods
+
+    private void writeLoop() {
+        try {
+            while (true) {
+                Object command;
+                if (unsynced == 0) {
+                    command = commands.take();
+                } else {
+                    long wait = syncDeadline - System.nanoTime();
+                    command = wait > 0 ? commands.poll(wait, TimeUnit.NANOSECONDS) : null;
+                }
+
+                if (command == null) {
+                    sync();
+                } else if (command == CLOSE) {
+                    sync();
+                    break;
+                } else if (command instanceof SaveFile.Checkpoint) {
+                    sync();
+                    startJournal(((SaveFile.Checkpoint) command).encode());
+                } else {
+                    appendRecord((Character) command);
+                }
+            }
+        } catch (IOException e) {
+            // Journaling stops, but the game goes on; it can still be saved with :Q
+            failed = true;
+            commands.clear();
+            e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closeChannel();
+        }
+    }
+
+    // Writes the checkpoint to a new file, syncs it and moves it over the old journal
+    private void startJournal(byte[] checkpoint) throws IOException {
+        closeChannel();
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        ByteBuffer header = ByteBuffer.allocate(14 + checkpoint.length);
+        crc.reset();
+        crc.update(checkpoint);
+        header.putInt(MAGIC).putShort((short) VERSION).putInt(checkpoint.length).put(checkpoint)
+                .putInt((int) crc.getValue()).flip();
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (header.hasRemaining()) {
+                out.write(header);
+            }
+            out.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        records = 0;
+    }
+
+    private void appendRecord(char key) throws IOException {
+        if (unsynced == 0) {
+            syncDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(FSYNC_MS);
+        }
+        pending.putChar(key).putInt(recordChecksum(crc, records, key));
+        records += 1;
+        unsynced += 1;
+        if (unsynced >= FSYNC_RECORDS) {
+            sync();
+        }
+    }
+
+    // Writes the pending records and forces them to disk
+    private void sync() throws IOException {
+        if (unsynced == 0 || channel == null) {
+            return;
+        }
+        pending.flip();
+        while (pending.hasRemaining()) {
+            channel.write(pending);
+        }
+        pending.clear();
+        channel.force(false);
+        unsynced = 0;
+    }
+
+    private void closeChannel() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        channel = null;
+    }
+
+    private static int recordChecksum(CRC32 crc, int index, char key) {
+        crc.reset();
+        crc.update(index >>> 24);
+        crc.update(index >>> 16);
+        crc.update(index >>> 8);
+        crc.update(index);
+        crc.update(key >>> 8);
+        crc.update(key);
+        return (int) crc.getValue();
+    }
+}
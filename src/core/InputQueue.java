@@ -0,0 +1,98 @@
+package core;
+
+import java.awt.KeyboardFocusManager;
+import java.awt.event.KeyEvent;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * A queue of typed keys in the order they were typed. The system queue is fed straight from
+ * AWT's key events, so readers can block until a key arrives instead of polling StdDraw in a
+ * loop. Keys are also stamped with when they arrived, for measuring input latency.
+ */
+public class InputQueue {
+    private static InputQueue system;
+
+    private final BlockingQueue<Key> keys = new LinkedBlockingQueue<>();
+
+    /**
+     * A typed key and the System.nanoTime at which it arrived.
+     */
+    public static class Key {
+        private final char character;
+        private final long nanos;
+
+        public Key(char character, long nanos) {
+            this.character = character;
+            this.nanos = nanos;
+        }
+
+        public char character() {
+            return character;
+        }
+
+        public long nanos() {
+            return nanos;
+        }
+    }
+
+    /**
+     * Gets the queue of keys typed in the game window. The first call starts listening for
+     * key events; from then on typed keys go to this queue instead of StdDraw's.
+     *
+     * @return The shared system queue
+     */
+    public static synchronized InputQueue system() {
+        if (system == null) {
+            InputQueue queue = new InputQueue();
+            KeyboardFocusManager.getCurrentKeyboardFocusManager().addKeyEventDispatcher(e -> {
+                if (e.getID() != KeyEvent.KEY_TYPED || e.getKeyChar() == KeyEvent.CHAR_UNDEFINED) {
+                    return false;
+                }
+                queue.offer(e.getKeyChar());
+                return true;
+            });
+            system = queue;
+        }
+        return system;
+    }
+
+    /**
+     * Adds a key as if it was typed now, e.g. to drive a game without a keyboard.
+     *
+     * @param c The key
+     */
+    public void offer(char c) {
+        keys.add(new Key(c, System.nanoTime()));
+    }
+
+    /**
+     * Gets the next key without waiting.
+     *
+     * @return The oldest key not yet taken, or null if there is none
+     */
+    public Key poll() {
+        return keys.poll();
+    }
+
+    /**
+     * Waits until a key is typed, without using the CPU while waiting.
+     *
+     * @return The oldest key not yet taken
+     */
+    public Key take() {
+        try {
+            return keys.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for input", e);
+        }
+    }
+
+    /**
+     * Drops all keys that have not been taken yet.
+     */
+    public void clear() {
+        keys.clear();
+    }
+}
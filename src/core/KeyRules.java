@@ -0,0 +1,131 @@
+package core;
+
+import tileengine.BitGrid;
+import tileengine.Tileset;
+
+/**
+ * The rules for what one typed key does, shared by Game and ReplayEngine so that replaying a
+ * session always ends where the game did. w/a/s/d move the avatar one tile unless a wall or
+ * the world's edge is in the way, and moving onto a coin collects it; l toggles line of sight;
+ * ':' followed by q (or Q) quits. Any other key is ignored.
+ *
+ * step() works on a wall mask, a coin mask and a Position, and only reports what happened;
+ * each caller applies the outcome to its own state, e.g. Game moves the Avatar and updates
+ * Vision, and ReplayEngine updates its digest.
+ */
+public class KeyRules {
+    // What step() did with a key
+    public static final int IGNORED = 0;
+    public static final int BLOCKED = 1;
+    public static final int MOVED = 2;
+    public static final int COLLECTED = 3;
+    public static final int TOGGLED_LOS = 4;
+    public static final int COLON = 5;
+    public static final int QUIT = 6;
+
+    /**
+     * Where the avatar is, and whether the last key was the ':' of ":q". step() updates it.
+     */
+    public static class Position {
+        private int x;
+        private int y;
+        private boolean colonPressed;
+
+        public Position(int x, int y) {
+            this.x = x;
+            this.y = y;
+        }
+
+        public int getX() {
+            return x;
+        }
+
+        public int getY() {
+            return y;
+        }
+
+        /**
+         * Gets whether the next q or Q quits.
+         */
+        public boolean isColonPressed() {
+            return colonPressed;
+        }
+
+        /**
+         * Forgets a ':' typed last, e.g. once a replay stopped at ":q".
+         */
+        public void clearColon() {
+            colonPressed = false;
+        }
+    }
+
+    /**
+     * Applies one key. A move onto a coin clears it from the coin mask.
+     *
+     * @param key The key typed
+     * @param position The avatar's position, updated by moves
+     * @param walls Cells the avatar cannot enter
+     * @param coins Cells holding a coin
+     * @return What the key did: IGNORED, BLOCKED, MOVED, COLLECTED (moved and picked up a
+     *         coin), TOGGLED_LOS, COLON (the ':' of ":q"), or QUIT (the q of ":q")
+     */
+    public static int step(char key, Position position, BitGrid walls, BitGrid coins) {
+        if (position.colonPressed && (key == 'q' || key == 'Q')) {
+            return QUIT;
+        }
+        position.colonPressed = key == ':';
+        int x = position.x;
+        int y = position.y;
+        switch (key) {
+            case ':':
+                return COLON;
+            case 'w':
+            case 'W':
+                y += 1;
+                break;
+            case 's':
+            case 'S':
+                y -= 1;
+                break;
+            case 'a':
+            case 'A':
+                x -= 1;
+                break;
+            case 'd':
+            case 'D':
+                x += 1;
+                break;
+            case 'l':
+            case 'L':
+                return TOGGLED_LOS;
+            default:
+                return IGNORED;
+        }
+        if (x < 0 || x >= walls.width() || y < 0 || y >= walls.height() || walls.get(x, y)) {
+            return BLOCKED;
+        }
+        position.x = x;
+        position.y = y;
+        if (coins.get(x, y)) {
+            coins.clear(x, y);
+            return COLLECTED;
+        }
+        return MOVED;
+    }
+
+    /**
+     * Makes the coin mask step() works on from the coins in a world.
+     *
+     * @param world The world
+     * @return A mask with the cells of the world's coins set
+     */
+    public static BitGrid coinMask(World world) {
+        BitGrid coins = new BitGrid(world.getWorldGrid().width(), world.getWorldGrid().height());
+        world.getEntities().forEach((x, y, tile) -> {
+            if (tile == Tileset.COIN) {
+                coins.set(x, y);
+            }
+        });
+        return coins;
+    }
+}
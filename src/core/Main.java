@@ -7,7 +7,13 @@ public class Main {
 
     public static void main(String[] args) {
         boolean gameCompleted = false;
-        
+
+        // Offer to pick up where a game that was not saved left off, e.g. after a crash
+        Game recovered = new GameMenu(WIDTH, HEIGHT).recoverJournal();
+        if (recovered != null) {
+            gameCompleted = recovered.run();
+        }
+
         while (true) {
             GameMenu menu = new GameMenu(WIDTH, HEIGHT);
             Game game = menu.displayMainMenu(gameCompleted);
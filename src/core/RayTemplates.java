@@ -0,0 +1,101 @@
+package core;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Precomputed rays for RaycastFov. For a given radius, each of the 360 one-degree rays is
+ * stored as the list of cells it passes through, as offsets from the origin packed into
+ * ints. Walking a ray is then integer adds and grid lookups, with no trig and no allocation.
+ *
+ * The cells are found with the same 0.2-tile stepping the ray caster has always used, with
+ * consecutive repeats of the same cell dropped. Templates are cached for the few most
+ * recently used radii.
+ */
+public final class RayTemplates {
+    public static final int RAY_COUNT = 360;
+
+    private static final int MAX_CACHED_RADII = 4;
+    private static final Map<Integer, RayTemplates> CACHE =
+            new LinkedHashMap<>(MAX_CACHED_RADII, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, RayTemplates> eldest) {
+                    return size() > MAX_CACHED_RADII;
+                }
+            };
+
+    private final int radius;
+    // Ray r covers offsets[rayStart[r]] up to (not including) offsets[rayStart[r + 1]]
+    private final int[] rayStart;
+    private final int[] offsets;
+
+    private RayTemplates(int radius) {
+        this.radius = radius;
+        this.rayStart = new int[RAY_COUNT + 1];
+        int[] cells = new int[RAY_COUNT * (5 * radius + 2)];
+        int count = 0;
+        double step = 0.2;
+        for (int deg = 0; deg < RAY_COUNT; deg++) {
+            rayStart[deg] = count;
+            double angle = Math.toRadians(deg);
+            double dx = Math.cos(angle), dy = Math.sin(angle);
+            int lastCell = pack(0, 0); // the origin is visited separately
+            for (double dist = step; dist <= radius; dist += step) {
+                int xi = (int) Math.floor(0.5 + dx * dist), yi = (int) Math.floor(0.5 + dy * dist);
+                int cell = pack(xi, yi);
+                if (cell != lastCell) {
+                    cells[count++] = cell;
+                    lastCell = cell;
+                }
+            }
+        }
+        rayStart[RAY_COUNT] = count;
+        this.offsets = Arrays.copyOf(cells, count);
+    }
+
+    /**
+     * Gets the templates for a radius, building them if they are not cached.
+     * @param radius ray length in tiles
+     * @return the templates
+     */
+    public static RayTemplates forRadius(int radius) {
+        if (radius < 0 || radius > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Unsupported vision radius: " + radius);
+        }
+        synchronized (CACHE) {
+            return CACHE.computeIfAbsent(radius, RayTemplates::new);
+        }
+    }
+
+    public int radius() {
+        return radius;
+    }
+
+    // Index of the first cell of a ray
+    public int rayStart(int ray) {
+        return rayStart[ray];
+    }
+
+    // Index after the last cell of a ray
+    public int rayEnd(int ray) {
+        return rayStart[ray + 1];
+    }
+
+    // Packed offset of a cell, see offsetX and offsetY
+    public int offset(int index) {
+        return offsets[index];
+    }
+
+    public static int offsetX(int packed) {
+        return packed >> 16;
+    }
+
+    public static int offsetY(int packed) {
+        return (short) packed;
+    }
+
+    private static int pack(int dx, int dy) {
+        return (dx << 16) | (dy & 0xFFFF);
+    }
+}
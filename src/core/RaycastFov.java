@@ -0,0 +1,36 @@
+package core;
+
+import tileengine.TileGrid;
+import tileengine.Tileset;
+
+/**
+ * The original line-of-sight algorithm: one ray per degree, each followed until it leaves
+ * the world, hits a wall or reaches the radius. The cells along each ray come from
+ * precomputed RayTemplates. Kept as a legacy mode next to ShadowcastFov.
+ */
+public class RaycastFov implements FovAlgorithm {
+    // The templates for the radius of the last call, so the shared cache is only consulted
+    // when the radius changes. RayTemplates is immutable, so a stale read from another thread
+    // just looks the radius up again.
+    private RayTemplates rays;
+
+    @Override
+    public void compute(TileGrid grid, int originX, int originY, int radius, CellVisitor visitor) {
+        visitor.visit(originX, originY);
+        RayTemplates rays = this.rays;
+        if (rays == null || rays.radius() != radius) {
+            rays = RayTemplates.forRadius(radius);
+            this.rays = rays;
+        }
+        for (int ray = 0; ray < RayTemplates.RAY_COUNT; ray++) {
+            for (int i = rays.rayStart(ray); i < rays.rayEnd(ray); i++) {
+                int offset = rays.offset(i);
+                int x = originX + RayTemplates.offsetX(offset);
+                int y = originY + RayTemplates.offsetY(offset);
+                if (!grid.inBounds(x, y)) break;
+                visitor.visit(x, y);
+                if (grid.get(x, y) == Tileset.WALL) break;
+            }
+        }
+    }
+}
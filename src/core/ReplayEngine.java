@@ -0,0 +1,317 @@
+package core;
+
+import tileengine.BitGrid;
+import tileengine.EntityLayer;
+import tileengine.TileGrid;
+import tileengine.Tileset;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Replays recorded sessions without a window, renderer or vision, for checking saves in bulk.
+ * Keys are applied by KeyRules, as in Game, and ":q" ends the session. The fog of war is not
+ * replayed, since it never changes where the avatar can go.
+ *
+ * Only the world is generated per replay; the keys themselves run against a wall mask and a
+ * coin mask, so replaying takes a few nanoseconds per key. The world digest (World.digest) is
+ * kept up to date in O(1) per move and recorded every DIGEST_KEYS keys, so runs can be
+ * compared with DigestTrail.firstDivergence.
+ */
+public class ReplayEngine implements AutoCloseable {
+    // Saves replayed sequentially by one task before it stops splitting
+    private static final int SAVES_PER_TASK = 4;
+
+    // Keys between recorded digests, also used by Game so that trails from saves line up
+    public static final int DIGEST_KEYS = 64;
+
+    private final int width;
+    private final int height;
+    private final ForkJoinPool pool;
+
+    /**
+     * Receives the outcome of replaying one save file. Called from several threads at once,
+     * so implementations must be thread-safe.
+     */
+    @FunctionalInterface
+    public interface ReplayConsumer {
+        /**
+         * @param save The save file
+         * @param result The final state, or null if the file could not be replayed
+         * @param error Why the file could not be replayed, or null if it was
+         */
+        void accept(Path save, Result result, Exception error);
+    }
+
+    /**
+     * The state at the end of a replay.
+     */
+    public static class Result {
+        private final long seed;
+        private final int avatarX;
+        private final int avatarY;
+        private final int collectedCoins;
+        private final int totalCoins;
+        private final int remainingCoins;
+        private final boolean lineOfSightEnabled;
+        private final int keysReplayed;
+        private final long hash;
+        private final DigestTrail trail;
+
+        Result(long seed, int avatarX, int avatarY, int collectedCoins, int totalCoins,
+               BitGrid coins, boolean lineOfSightEnabled, int keysReplayed, long hash,
+               DigestTrail trail) {
+            this.seed = seed;
+            this.avatarX = avatarX;
+            this.avatarY = avatarY;
+            this.collectedCoins = collectedCoins;
+            this.totalCoins = totalCoins;
+            this.remainingCoins = coins.cardinality();
+            this.lineOfSightEnabled = lineOfSightEnabled;
+            this.keysReplayed = keysReplayed;
+            this.hash = hash;
+            this.trail = trail;
+        }
+
+        public long getSeed() {
+            return seed;
+        }
+
+        public int getAvatarX() {
+            return avatarX;
+        }
+
+        public int getAvatarY() {
+            return avatarY;
+        }
+
+        public int getCollectedCoins() {
+            return collectedCoins;
+        }
+
+        public int getTotalCoins() {
+            return totalCoins;
+        }
+
+        public int getRemainingCoins() {
+            return remainingCoins;
+        }
+
+        public boolean isLineOfSightEnabled() {
+            return lineOfSightEnabled;
+        }
+
+        /**
+         * Gets how many keys were applied, not counting the ':' of ":q".
+         */
+        public int getKeysReplayed() {
+            return keysReplayed;
+        }
+
+        /**
+         * Gets the world digest of the final state: the terrain, avatar position and coins.
+         * Two runs that end in the same state have the same hash, also when one of them was
+         * a Game (see Game.getDigest).
+         */
+        public long getHash() {
+            return hash;
+        }
+
+        /**
+         * Gets the world digests recorded every DIGEST_KEYS keys, starting from the state the
+         * replay started in. Keys after the last multiple of DIGEST_KEYS are only covered by
+         * getHash.
+         */
+        public DigestTrail getTrail() {
+            return trail;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("seed=%d avatar=(%d,%d) coins=%d/%d los=%s keys=%d hash=%016x",
+                    seed, avatarX, avatarY, collectedCoins, totalCoins,
+                    lineOfSightEnabled ? "on" : "off", keysReplayed, hash);
+        }
+    }
+
+    /**
+     * Creates an engine for worlds of the given size that uses one thread per available
+     * processor for replayAll.
+     * @param width width of each world
+     * @param height height of each world
+     */
+    public ReplayEngine(int width, int height) {
+        this(width, height, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates an engine with the given number of worker threads for replayAll.
+     * @param width width of each world
+     * @param height height of each world
+     * @param parallelism number of worker threads
+     */
+    public ReplayEngine(int width, int height, int parallelism) {
+        this.width = width;
+        this.height = height;
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Generates the world for a seed and replays keys on it from the start of the game.
+     * @param seed the world's seed
+     * @param input the keys typed, e.g. the second line of a save.txt
+     * @return the final state
+     */
+    public Result replay(long seed, CharSequence input) {
+        World world = new World(width, height);
+        world.generateWorld(seed);
+        Avatar avatar = Game.placeAvatarAtCenterMost(world.getWorldGrid(), world);
+        return run(seed, world, avatar.getX(), avatar.getY(), false, input);
+    }
+
+    /**
+     * Replays the keys of a binary save on top of its checkpoint. The save's world size is
+     * used, not the engine's.
+     * @param save the save
+     * @return the final state
+     */
+    public Result replay(SaveFile save) {
+        World world = new World(save.getWidth(), save.getHeight());
+        Vision vision = new Vision(world.getWorldGrid(), save.getWidth(), save.getHeight());
+        save.restore(world, vision);
+        new Avatar(save.getAvatarX(), save.getAvatarY(), world);
+        return run(save.getSeed(), world, save.getAvatarX(), save.getAvatarY(),
+                vision.isLineOfSightEnabled(), save.getInputTail());
+    }
+
+    /**
+     * Replays a save file: a save slot's file, a journal.bin, or a legacy save.txt holding the
+     * seed on the first line and the keys on the second.
+     * @param file the save file
+     * @return the final state
+     * @throws IOException if the file cannot be read or is not a save
+     */
+    public Result replayFile(Path file) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        String magic = new String(bytes, 0, Math.min(4, bytes.length), StandardCharsets.ISO_8859_1);
+        if (magic.equals("BYOW")) {
+            return replay(SaveFile.read(new ByteArrayInputStream(bytes)));
+        }
+        if (magic.equals("BYOJ")) {
+            return replay(InputJournal.recover(file));
+        }
+
+        String[] lines = new String(bytes, StandardCharsets.UTF_8).split("\\R", 2);
+        try {
+            long seed = Long.parseLong(lines[0].trim());
+            return replay(seed, lines.length > 1 ? lines[1].strip() : "");
+        } catch (NumberFormatException e) {
+            throw new IOException("Not a save file: " + file, e);
+        }
+    }
+
+    /**
+     * Replays many save files in parallel and passes each outcome to the consumer. Returns
+     * once every file has been replayed. Outcomes reach the consumer in no particular order.
+     * @param saves the save files
+     * @param consumer receives each file's final state or error
+     */
+    public void replayAll(List<Path> saves, ReplayConsumer consumer) {
+        if (saves.isEmpty()) {
+            return;
+        }
+        pool.invoke(new SaveRangeTask(saves, 0, saves.size(), consumer));
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    // Helper Methods
+
+    private static Result run(long seed, World world, int x, int y, boolean los,
+                              CharSequence input) {
+        TileGrid grid = world.getWorldGrid();
+        BitGrid walls = grid.mask(Tileset.WALL);
+        BitGrid coins = KeyRules.coinMask(world);
+        KeyRules.Position position = new KeyRules.Position(x, y);
+        int collected = world.getCollectedCoins();
+        long digest = world.digest();
+        DigestTrail trail = new DigestTrail(DIGEST_KEYS, digest);
+
+        int keys = 0;
+        for (int i = 0; i < input.length(); i++) {
+            int from = position.getY() * grid.width() + position.getX();
+            int event = KeyRules.step(input.charAt(i), position, walls, coins);
+            if (event == KeyRules.QUIT) {
+                break;
+            }
+            if (event == KeyRules.COLON) {
+                continue;
+            }
+            keys += 1;
+
+            if (event == KeyRules.TOGGLED_LOS) {
+                los = !los;
+            } else if (event == KeyRules.MOVED || event == KeyRules.COLLECTED) {
+                // The same changes Avatar.moveTo makes to the entity layer and counter
+                int cell = position.getY() * grid.width() + position.getX();
+                digest ^= EntityLayer.key(from, Tileset.AVATAR) ^ EntityLayer.key(cell, Tileset.AVATAR);
+                if (event == KeyRules.COLLECTED) {
+                    digest ^= EntityLayer.key(cell, Tileset.COIN)
+                            ^ World.collectedKey(collected) ^ World.collectedKey(collected + 1);
+                    collected += 1;
+                }
+            }
+            if (keys % DIGEST_KEYS == 0) {
+                trail.record(digest);
+            }
+        }
+        return new Result(seed, position.getX(), position.getY(), collected,
+                world.getTotalCoins(), coins, los, keys, digest, trail);
+    }
+
+    private class SaveRangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Path> saves;
+        private final int start;
+        private final int end;
+        private final ReplayConsumer consumer;
+
+        SaveRangeTask(List<Path> saves, int start, int end, ReplayConsumer consumer) {
+            this.saves = saves;
+            this.start = start;
+            this.end = end;
+            this.consumer = consumer;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= SAVES_PER_TASK) {
+                for (int i = start; i < end; i++) {
+                    Path save = saves.get(i);
+                    Result result;
+                    try {
+                        result = replayFile(save);
+                    } catch (IOException | RuntimeException e) {
+                        consumer.accept(save, null, e);
+                        continue;
+                    }
+                    consumer.accept(save, result, null);
+                }
+                return;
+            }
+            int mid = start + (end - start) / 2;
+            invokeAll(new SaveRangeTask(saves, start, mid, consumer),
+                    new SaveRangeTask(saves, mid, end, consumer));
+        }
+    }
+}
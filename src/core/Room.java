@@ -1,6 +1,8 @@
 package core;
 
 public class Room {
+    public static final int PADDING = 2; // Min distance between each room
+
     private int startX;
     private int startY;
     private int width;
@@ -16,7 +18,7 @@ public class Room {
 
     // Check if two rooms are overlapped
     public boolean overlapsWith(Room other) {
-        int padding = 2; // Min distance between each room
+        int padding = PADDING;
         return this.startX + this.width + padding > other.startX && other.startX + other.width + padding > this.startX &&
                 this.startY + this.height + padding > other.startY && other.startY + other.height + padding > this.startY;
     }
@@ -0,0 +1,89 @@
+package core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Spatial hash of placed rooms used to speed up overlap checks.
+ * Buckets are sized to the largest room footprint plus the room padding, so any room that
+ * could overlap a candidate has its start corner in the candidate's bucket or one of the
+ * eight buckets around it.
+ */
+public class RoomIndex {
+    private final int cellWidth;
+    private final int cellHeight;
+    private final int columns;
+    private final int rows;
+    private final List<List<Room>> buckets;
+
+    /**
+     * Creates an empty index for a world of the given size.
+     * @param worldWidth width of the world in tiles
+     * @param worldHeight height of the world in tiles
+     * @param maxRoomWidth upper bound on the width of any indexed room
+     * @param maxRoomHeight upper bound on the height of any indexed room
+     */
+    public RoomIndex(int worldWidth, int worldHeight, int maxRoomWidth, int maxRoomHeight) {
+        this.cellWidth = maxRoomWidth + Room.PADDING;
+        this.cellHeight = maxRoomHeight + Room.PADDING;
+        this.columns = Math.max(1, (worldWidth + cellWidth - 1) / cellWidth);
+        this.rows = Math.max(1, (worldHeight + cellHeight - 1) / cellHeight);
+        this.buckets = new ArrayList<>(columns * rows);
+        for (int i = 0; i < columns * rows; i++) {
+            buckets.add(null);
+        }
+    }
+
+    /**
+     * Adds a room to the index.
+     * @param room the room to add
+     */
+    public void add(Room room) {
+        int index = bucketIndex(column(room.getStartX()), row(room.getStartY()));
+        List<Room> bucket = buckets.get(index);
+        if (bucket == null) {
+            bucket = new ArrayList<>();
+            buckets.set(index, bucket);
+        }
+        bucket.add(room);
+    }
+
+    /**
+     * Checks whether the given room overlaps any indexed room.
+     * Only the 3x3 block of buckets around the room's start corner is scanned.
+     * @param room the candidate room
+     * @return true if an indexed room overlaps the candidate
+     */
+    public boolean overlapsAny(Room room) {
+        int cx = column(room.getStartX());
+        int cy = row(room.getStartY());
+        for (int x = Math.max(0, cx - 1); x <= Math.min(columns - 1, cx + 1); x++) {
+            for (int y = Math.max(0, cy - 1); y <= Math.min(rows - 1, cy + 1); y++) {
+                List<Room> bucket = buckets.get(bucketIndex(x, y));
+                if (bucket == null) {
+                    continue;
+                }
+                for (Room existingRoom : bucket) {
+                    if (room.overlapsWith(existingRoom)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    // Helper Methods
+
+    private int column(int x) {
+        return Math.min(columns - 1, Math.max(0, x / cellWidth));
+    }
+
+    private int row(int y) {
+        return Math.min(rows - 1, Math.max(0, y / cellHeight));
+    }
+
+    private int bucketIndex(int column, int row) {
+        return row * columns + column;
+    }
+}
@@ -0,0 +1,473 @@
+package core;
+
+import tileengine.TileGrid;
+import tileengine.Tileset;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Binary save file. Instead of the seed and every key typed since the start, it holds a
+ * checkpoint of the game state and only the keys typed since that checkpoint, so loading
+ * takes the same time however long the game was played.
+ *
+ * Layout, big-endian:
+ *   header:      magic "BYOW", version, world width and height, seed, the name of the save
+ *                slot the game saves to (modified UTF-8)
+ *   terrain:     the tile id of every cell in row-major order, deflated
+ *   state:       avatar position, collected and total coins, the remaining coin positions,
+ *                whether line of sight is on, the explored cells as bits, deflated, and the
+ *                world's digest (see World.digest)
+ *   input tail:  the keys typed since the checkpoint
+ *   digests:     the interval and the digests recorded after every interval keys of the
+ *                tail (see DigestTrail), or an interval of 0 if none were recorded
+ *
+ * Everything but the input tail is a checkpoint, captured by capture() and encoded once by
+ * Checkpoint.encode(), so writing a save only appends the tail to it.
+ */
+public class SaveFile {
+    private static final int MAGIC = 0x42594F57; // "BYOW"
+    private static final int VERSION = 3;
+
+    private final int width;
+    private final int height;
+    private final long seed;
+    private final String saveSlot;
+    private final TileGrid terrain;
+    private final int avatarX;
+    private final int avatarY;
+    private final int collectedCoins;
+    private final int totalCoins;
+    private final int[] coins;
+    private final boolean lineOfSightEnabled;
+    private final boolean[][] explored;
+    private final String inputTail;
+    private final DigestTrail trail;
+
+    private SaveFile(int width, int height, long seed, String saveSlot, TileGrid terrain,
+                     int avatarX, int avatarY, int collectedCoins, int totalCoins, int[] coins,
+                     boolean lineOfSightEnabled, boolean[][] explored, String inputTail,
+                     DigestTrail trail) {
+        this.width = width;
+        this.height = height;
+        this.seed = seed;
+        this.saveSlot = saveSlot;
+        this.terrain = terrain;
+        this.avatarX = avatarX;
+        this.avatarY = avatarY;
+        this.collectedCoins = collectedCoins;
+        this.totalCoins = totalCoins;
+        this.coins = coins;
+        this.lineOfSightEnabled = lineOfSightEnabled;
+        this.explored = explored;
+        this.inputTail = inputTail;
+        this.trail = trail;
+    }
+
+    /**
+     * The game state at a checkpoint: every part of a save but the input tail. Made by
+     * capture() on the game thread, which only copies what can still change; the encoding
+     * and deflating are left to encode(), which can run on another thread, e.g. the journal's
+     * writer.
+     */
+    public static class Checkpoint {
+        private final long seed;
+        private final String saveSlot;
+        private final TileGrid terrain;
+        private final int avatarX;
+        private final int avatarY;
+        private final int collectedCoins;
+        private final int totalCoins;
+        private final int[] coins;
+        private final boolean lineOfSightEnabled;
+        private final boolean[][] explored;
+        private final long digest;
+
+        // Set by the first call to encode
+        private volatile byte[] encoded;
+
+        private Checkpoint(long seed, String saveSlot, TileGrid terrain, int avatarX,
+                           int avatarY, int collectedCoins, int totalCoins, int[] coins,
+                           boolean lineOfSightEnabled, boolean[][] explored, long digest) {
+            this.seed = seed;
+            this.saveSlot = saveSlot;
+            this.terrain = terrain;
+            this.avatarX = avatarX;
+            this.avatarY = avatarY;
+            this.collectedCoins = collectedCoins;
+            this.totalCoins = totalCoins;
+            this.coins = coins;
+            this.lineOfSightEnabled = lineOfSightEnabled;
+            this.explored = explored;
+            this.digest = digest;
+        }
+
+        /**
+         * Encodes the checkpoint, or returns the encoding made by an earlier call. Safe to
+         * call from any thread; callers must not change the returned array.
+         *
+         * @return The encoded checkpoint, the start of a save
+         */
+        public byte[] encode() {
+            byte[] bytes = encoded;
+            if (bytes == null) {
+                bytes = encodeNow();
+                encoded = bytes;
+            }
+            return bytes;
+        }
+
+        private byte[] encodeNow() {
+            int width = terrain.width();
+            int height = terrain.height();
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeInt(MAGIC);
+                out.writeShort(VERSION);
+                out.writeInt(width);
+                out.writeInt(height);
+                out.writeLong(seed);
+                out.writeUTF(saveSlot);
+
+                byte[] ids = new byte[terrain.size()];
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = (byte) terrain.idAt(i);
+                }
+                writeDeflated(out, ids);
+
+                out.writeInt(avatarX);
+                out.writeInt(avatarY);
+                out.writeInt(collectedCoins);
+                out.writeInt(totalCoins);
+                out.writeInt(coins.length);
+                for (int cell : coins) {
+                    out.writeInt(cell);
+                }
+                out.writeBoolean(lineOfSightEnabled);
+                writeDeflated(out, packBits(explored, width, height));
+                out.writeLong(digest);
+            } catch (IOException e) {
+                throw new IllegalStateException("Writing to memory failed", e);
+            }
+            return bytes.toByteArray();
+        }
+    }
+
+    /**
+     * Captures the current game state as a checkpoint without encoding it, so it is cheap
+     * enough to call between ticks. The explored grid and the coins are copied; the terrain
+     * is shared, since it does not change once the world is generated.
+     *
+     * @param seed The seed the world was generated from
+     * @param saveSlot The name of the save slot the game saves to
+     * @param world The world
+     * @param avatar The avatar
+     * @param vision The vision state
+     * @return The checkpoint
+     */
+    public static Checkpoint capture(long seed, String saveSlot, World world, Avatar avatar,
+                                     Vision vision) {
+        boolean[][] explored = vision.getExploredGrid();
+        boolean[][] copy = new boolean[explored.length][];
+        for (int x = 0; x < explored.length; x++) {
+            copy[x] = explored[x].clone();
+        }
+        return new Checkpoint(seed, saveSlot, world.getWorldGrid(), avatar.getX(),
+                avatar.getY(), world.getCollectedCoins(), world.getTotalCoins(), coinCells(world),
+                vision.isLineOfSightEnabled(), copy, world.digest());
+    }
+
+    // Writes a whole save to a stream, e.g. into a save slot ahead of its thumbnail
+    static void writeTo(DataOutputStream out, byte[] checkpoint, CharSequence inputTail,
+                        DigestTrail trail) throws IOException {
+        out.write(checkpoint);
+        writeTail(out, inputTail);
+        writeTrail(out, trail);
+    }
+
+    /**
+     * Builds a save from a checkpoint and the keys typed since, without going through a file.
+     *
+     * @param checkpoint An encoded checkpoint, from Checkpoint.encode()
+     * @param inputTail The keys typed since the checkpoint
+     * @return The save
+     * @throws IOException if the checkpoint is not valid
+     */
+    public static SaveFile fromCheckpoint(byte[] checkpoint, CharSequence inputTail) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(checkpoint.length + 4 + 2 * inputTail.length());
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.write(checkpoint);
+        writeTail(out, inputTail);
+        writeTrail(out, null);
+        return read(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+
+    /**
+     * Reads a save file, e.g. a save slot's file, which has its thumbnail after the save.
+     *
+     * @param path The save file
+     * @return The save
+     * @throws IOException if the file cannot be read or is not a save of a supported version
+     */
+    public static SaveFile read(Path path) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path))) {
+            return read(in);
+        }
+    }
+
+    /**
+     * Reads a save from a stream, e.g. a checkpoint followed by an input tail.
+     *
+     * @param stream The stream, positioned at the start of the header
+     * @return The save
+     * @throws IOException if the stream cannot be read or is not a save of a supported version
+     */
+    public static SaveFile read(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(stream);
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a save file");
+        }
+        int version = in.readUnsignedShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported save version " + version);
+        }
+        int width = in.readInt();
+        int height = in.readInt();
+        if (width <= 0 || height <= 0) {
+            throw new IOException("Bad world size " + width + "x" + height);
+        }
+        long seed = in.readLong();
+        String saveSlot = in.readUTF();
+
+        TileGrid terrain;
+        try {
+            terrain = TileGrid.fromIds(width, height, readInflated(in, width * height));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Bad terrain: " + e.getMessage(), e);
+        }
+
+        int avatarX = in.readInt();
+        int avatarY = in.readInt();
+        int collectedCoins = in.readInt();
+        int totalCoins = in.readInt();
+        int coinCount = in.readInt();
+        if (coinCount < 0 || coinCount > width * height) {
+            throw new IOException("Bad coin count " + coinCount);
+        }
+        int[] coins = new int[coinCount];
+        for (int i = 0; i < coinCount; i++) {
+            coins[i] = in.readInt();
+            if (coins[i] < 0 || coins[i] >= width * height) {
+                throw new IOException("Coin outside the world at cell " + coins[i]);
+            }
+        }
+        if (!terrain.inBounds(avatarX, avatarY)) {
+            throw new IOException("Avatar outside the world at " + avatarX + ", " + avatarY);
+        }
+        boolean lineOfSightEnabled = in.readBoolean();
+        boolean[][] explored = unpackBits(readInflated(in, (width * height + 7) / 8), width, height);
+        long digest = in.readLong();
+
+        int tailLength = in.readInt();
+        if (tailLength < 0) {
+            throw new IOException("Bad input tail length " + tailLength);
+        }
+        StringBuilder tail = new StringBuilder(tailLength);
+        for (int i = 0; i < tailLength; i++) {
+            tail.append(in.readChar());
+        }
+
+        DigestTrail trail = null;
+        int interval = in.readInt();
+        int count = in.readInt();
+        if (interval < 0 || count < 0 || (interval == 0 && count > 0)) {
+            throw new IOException("Bad digest trail: interval " + interval + ", " + count + " digests");
+        }
+        if (interval > 0) {
+            trail = new DigestTrail(interval, digest);
+            for (int i = 0; i < count; i++) {
+                trail.record(in.readLong());
+            }
+        }
+
+        return new SaveFile(width, height, seed, saveSlot, terrain, avatarX, avatarY,
+                collectedCoins, totalCoins, coins, lineOfSightEnabled, explored, tail.toString(),
+                trail);
+    }
+
+    /**
+     * Puts the saved terrain, coins and vision state into a freshly created world and vision.
+     * The avatar is not placed; create it at getAvatarX(), getAvatarY() afterwards.
+     */
+    void restore(World world, Vision vision) {
+        world.restore(terrain, coins, collectedCoins, totalCoins);
+        vision.restore(lineOfSightEnabled, explored);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Gets the name of the save slot the game was saving to, so a game recovered from the
+     * journal or loaded from a slot saves back to the same slot.
+     */
+    public String getSaveSlot() {
+        return saveSlot;
+    }
+
+    public int getAvatarX() {
+        return avatarX;
+    }
+
+    public int getAvatarY() {
+        return avatarY;
+    }
+
+    /**
+     * Gets the keys typed after the checkpoint, to be replayed on top of it.
+     */
+    public String getInputTail() {
+        return inputTail;
+    }
+
+    /**
+     * Gets the digests recorded while the input tail was typed, starting with the digest of
+     * the checkpoint, to check a replay of the tail against.
+     *
+     * @return The trail, or null if the save has none
+     */
+    public DigestTrail getTrail() {
+        return trail;
+    }
+
+    // Helper Methods
+
+    // The digests after the first, which is part of the checkpoint
+    private static void writeTrail(DataOutputStream out, DigestTrail trail) throws IOException {
+        if (trail == null) {
+            out.writeInt(0);
+            out.writeInt(0);
+            return;
+        }
+        out.writeInt(trail.interval());
+        out.writeInt(trail.size() - 1);
+        for (int i = 1; i < trail.size(); i++) {
+            out.writeLong(trail.get(i));
+        }
+    }
+
+    private static void writeTail(DataOutputStream out, CharSequence inputTail) throws IOException {
+        out.writeInt(inputTail.length());
+        for (int i = 0; i < inputTail.length(); i++) {
+            out.writeChar(inputTail.charAt(i));
+        }
+    }
+
+    // Row-major cell indexes of the coins still in the world
+    private static int[] coinCells(World world) {
+        int width = world.getWorldGrid().width();
+        int[] cells = new int[world.getEntities().size()];
+        int[] count = new int[1];
+        world.getEntities().forEach((x, y, tile) -> {
+            if (tile == Tileset.COIN) {
+                cells[count[0]++] = y * width + x;
+            }
+        });
+        return Arrays.copyOf(cells, count[0]);
+    }
+
+    private static byte[] packBits(boolean[][] grid, int width, int height) {
+        byte[] bits = new byte[(width * height + 7) / 8];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (grid[x][y]) {
+                    int i = y * width + x;
+                    bits[i >> 3] |= (byte) (1 << (i & 7));
+                }
+            }
+        }
+        return bits;
+    }
+
+    private static boolean[][] unpackBits(byte[] bits, int width, int height) {
+        boolean[][] grid = new boolean[width][height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int i = y * width + x;
+                grid[x][y] = (bits[i >> 3] & (1 << (i & 7))) != 0;
+            }
+        }
+        return grid;
+    }
+
+    private static void writeDeflated(OutputStream stream, byte[] data) throws IOException {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                compressed.write(buffer, 0, deflater.deflate(buffer));
+            }
+            DataOutputStream out = new DataOutputStream(stream);
+            out.writeInt(compressed.size());
+            compressed.writeTo(out);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] readInflated(DataInputStream in, int length) throws IOException {
+        int compressedLength = in.readInt();
+        if (compressedLength < 0) {
+            throw new IOException("Bad section length " + compressedLength);
+        }
+        byte[] compressed = in.readNBytes(compressedLength);
+        if (compressed.length != compressedLength) {
+            throw new IOException("Save file is truncated");
+        }
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] data = new byte[length];
+            int read = 0;
+            while (read < length && !inflater.finished()) {
+                int n = inflater.inflate(data, read, length - read);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                read += n;
+            }
+            if (read != length || !inflater.finished()) {
+                throw new IOException("Section holds a different amount of data than expected");
+            }
+            return data;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt compressed section", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,355 @@
+package core;
+
+import tileengine.TETile;
+import tileengine.TileGrid;
+import tileengine.Tileset;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Named save slots in a directory. Each slot's save (see SaveFile) is kept in its own file,
+ * followed by a small thumbnail of the world. An index file holds what a load menu shows for
+ * every slot: its name, seed, when it was saved and the coins collected, plus where its
+ * thumbnail starts. Listing slots only reads the index; a slot's thumbnail and save are only
+ * read when asked for.
+ *
+ * Saving holds a lock on a lock file in the directory from reading the index until the new
+ * index is in place, so games saving at the same time, in this process or another, never
+ * lose each other's slots. Files are written under unique temporary names and moved into
+ * place, so readers never see half a file and need no lock.
+ *
+ * Index layout, big-endian: magic "BYOI", version, slot count, then for each slot its name
+ * and file name (modified UTF-8), seed, save time in epoch milliseconds, collected and total
+ * coins, and the thumbnail's offset and length in the slot file.
+ */
+public class SaveSlots {
+    public static final Path DIR = Path.of("saves");
+
+    private static final String INDEX = "index.bin";
+    private static final String LOCK = "index.lock";
+    private static final int MAGIC = 0x42594F49; // "BYOI"
+    private static final int VERSION = 1;
+
+    // Thumbnails are at most this many cells across and down
+    private static final int THUMBNAIL_WIDTH = 40;
+    private static final int THUMBNAIL_HEIGHT = 20;
+
+    // File locks are held by the whole process, so threads saving in this process also take
+    // this monitor
+    private static final Object SAVING = new Object();
+
+    private final Path dir;
+
+    /**
+     * What the index holds about one slot.
+     */
+    public static class Slot {
+        private final String name;
+        private final String file;
+        private final long seed;
+        private final long savedAt;
+        private final int collectedCoins;
+        private final int totalCoins;
+        private final long thumbnailOffset;
+        private final int thumbnailLength;
+
+        Slot(String name, String file, long seed, long savedAt, int collectedCoins,
+             int totalCoins, long thumbnailOffset, int thumbnailLength) {
+            this.name = name;
+            this.file = file;
+            this.seed = seed;
+            this.savedAt = savedAt;
+            this.collectedCoins = collectedCoins;
+            this.totalCoins = totalCoins;
+            this.thumbnailOffset = thumbnailOffset;
+            this.thumbnailLength = thumbnailLength;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getSeed() {
+            return seed;
+        }
+
+        /**
+         * Gets when the slot was last saved, in milliseconds since the epoch.
+         */
+        public long getSavedAt() {
+            return savedAt;
+        }
+
+        public int getCollectedCoins() {
+            return collectedCoins;
+        }
+
+        public int getTotalCoins() {
+            return totalCoins;
+        }
+    }
+
+    /**
+     * A small picture of a saved world: one tile per block of world cells, choosing the
+     * avatar, then a coin, then floor, then wall, over whatever else is in the block.
+     */
+    public static class Thumbnail {
+        private final int width;
+        private final int height;
+        private final byte[] ids;
+
+        Thumbnail(int width, int height, byte[] ids) {
+            this.width = width;
+            this.height = height;
+            this.ids = ids;
+        }
+
+        /**
+         * Makes a thumbnail of a world as it looks, avatar and coins included.
+         */
+        static Thumbnail of(World world) {
+            TileGrid grid = world.getWorldGrid();
+            int width = Math.min(THUMBNAIL_WIDTH, grid.width());
+            int height = Math.min(THUMBNAIL_HEIGHT, grid.height());
+            int[] rank = new int[width * height];
+            byte[] ids = new byte[width * height];
+            Arrays.fill(ids, (byte) Tileset.NOTHING.id());
+            for (int y = 0; y < grid.height(); y++) {
+                int ty = (int) ((long) y * height / grid.height());
+                for (int x = 0; x < grid.width(); x++) {
+                    int tx = (int) ((long) x * width / grid.width());
+                    TETile tile = world.getTile(x, y);
+                    int r = rank(tile);
+                    int i = ty * width + tx;
+                    if (r > rank[i]) {
+                        rank[i] = r;
+                        ids[i] = (byte) tile.id();
+                    }
+                }
+            }
+            return new Thumbnail(width, height, ids);
+        }
+
+        public int width() {
+            return width;
+        }
+
+        public int height() {
+            return height;
+        }
+
+        public TETile get(int x, int y) {
+            TETile tile = Tileset.byId(ids[y * width + x]);
+            return tile != null ? tile : Tileset.NOTHING;
+        }
+
+        private static int rank(TETile tile) {
+            if (tile == Tileset.AVATAR) {
+                return 4;
+            } else if (tile == Tileset.COIN) {
+                return 3;
+            } else if (tile == Tileset.FLOOR) {
+                return 2;
+            } else if (tile == Tileset.WALL) {
+                return 1;
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Uses the slots in a directory, which is created on the first save.
+     *
+     * @param dir The directory
+     */
+    public SaveSlots(Path dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Lists the slots, newest first, reading only the index.
+     *
+     * @return The slots, or an empty list if nothing was saved yet
+     * @throws IOException if the index cannot be read
+     */
+    public List<Slot> list() throws IOException {
+        List<Slot> slots = readIndex();
+        slots.sort(Comparator.comparingLong(Slot::getSavedAt).reversed());
+        return slots;
+    }
+
+    /**
+     * Saves a game into a slot, replacing the slot's previous save if it has one.
+     *
+     * @param name The slot's name
+     * @param seed The seed the world was generated from
+     * @param world The world as it is now, for the thumbnail and coin counts
+     * @param checkpoint An encoded checkpoint, from SaveFile.Checkpoint.encode
+     * @param inputTail The keys typed since the checkpoint
+     * @param trail Digests recorded since the checkpoint, or null
+     */
+    public void save(String name, long seed, World world, byte[] checkpoint,
+                     CharSequence inputTail, DigestTrail trail) throws IOException {
+        Files.createDirectories(dir);
+        Thumbnail thumbnail = Thumbnail.of(world);
+        synchronized (SAVING) {
+            try (FileChannel lockFile = FileChannel.open(dir.resolve(LOCK),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                // Released when the channel is closed
+                lockFile.lock();
+                List<Slot> slots = readIndex();
+                String file = null;
+                for (Slot slot : slots) {
+                    if (slot.name.equals(name)) {
+                        file = slot.file;
+                    }
+                }
+                if (file == null) {
+                    file = fileName(name, slots);
+                }
+
+                // The save, then the thumbnail
+                Path temp = Files.createTempFile(dir, file, ".tmp");
+                long thumbnailOffset;
+                try {
+                    try (DataOutputStream out = new DataOutputStream(
+                            new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                        SaveFile.writeTo(out, checkpoint, inputTail, trail);
+                        thumbnailOffset = out.size();
+                        out.writeShort(thumbnail.width);
+                        out.writeShort(thumbnail.height);
+                        out.write(thumbnail.ids);
+                    }
+                    Files.move(temp, dir.resolve(file), StandardCopyOption.REPLACE_EXISTING);
+                } finally {
+                    Files.deleteIfExists(temp);
+                }
+
+                slots.removeIf(slot -> slot.name.equals(name));
+                slots.add(new Slot(name, file, seed, System.currentTimeMillis(),
+                        world.getCollectedCoins(), world.getTotalCoins(), thumbnailOffset,
+                        4 + thumbnail.ids.length));
+                writeIndex(slots);
+            }
+        }
+    }
+
+    /**
+     * Reads a slot's thumbnail, without reading its save.
+     *
+     * @param slot A slot from list()
+     * @return The thumbnail
+     * @throws IOException if the slot file cannot be read
+     */
+    public Thumbnail thumbnail(Slot slot) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(dir.resolve(slot.file).toFile(), "r")) {
+            in.seek(slot.thumbnailOffset);
+            int width = in.readUnsignedShort();
+            int height = in.readUnsignedShort();
+            if (4 + width * height != slot.thumbnailLength) {
+                throw new IOException("Thumbnail of slot " + slot.name + " is damaged");
+            }
+            byte[] ids = new byte[width * height];
+            in.readFully(ids);
+            return new Thumbnail(width, height, ids);
+        }
+    }
+
+    /**
+     * Reads a slot's save.
+     *
+     * @param slot A slot from list()
+     * @return The save
+     * @throws IOException if the slot file cannot be read or is not a save
+     */
+    public SaveFile load(Slot slot) throws IOException {
+        return SaveFile.read(dir.resolve(slot.file));
+    }
+
+    // Helper Methods
+
+    private List<Slot> readIndex() throws IOException {
+        Path index = dir.resolve(INDEX);
+        List<Slot> slots = new ArrayList<>();
+        if (!Files.exists(index)) {
+            return slots;
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(index)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a save slot index: " + index);
+            }
+            int version = in.readUnsignedShort();
+            if (version != VERSION) {
+                throw new IOException("Unsupported save slot index version " + version);
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                slots.add(new Slot(in.readUTF(), in.readUTF(), in.readLong(), in.readLong(),
+                        in.readInt(), in.readInt(), in.readLong(), in.readInt()));
+            }
+        }
+        return slots;
+    }
+
+    private void writeIndex(List<Slot> slots) throws IOException {
+        Path temp = Files.createTempFile(dir, INDEX, ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeShort(VERSION);
+                out.writeInt(slots.size());
+                for (Slot slot : slots) {
+                    out.writeUTF(slot.name);
+                    out.writeUTF(slot.file);
+                    out.writeLong(slot.seed);
+                    out.writeLong(slot.savedAt);
+                    out.writeInt(slot.collectedCoins);
+                    out.writeInt(slot.totalCoins);
+                    out.writeLong(slot.thumbnailOffset);
+                    out.writeInt(slot.thumbnailLength);
+                }
+            }
+            Files.move(temp, dir.resolve(INDEX), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // A file name made from the slot name that no other slot uses
+    private static String fileName(String name, List<Slot> slots) {
+        String base = name.replaceAll("[^A-Za-z0-9_-]", "_");
+        if (base.isEmpty() || base.length() > 40) {
+            base = "slot";
+        }
+        String file = base + ".bin";
+        for (int n = 2; isUsed(file, slots); n++) {
+            file = base + "-" + n + ".bin";
+        }
+        return file;
+    }
+
+    private static boolean isUsed(String file, List<Slot> slots) {
+        for (Slot slot : slots) {
+            if (slot.file.equals(file)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,94 @@
+package core;
+
+import tileengine.TileGrid;
+import tileengine.Tileset;
+
+/**
+ * Symmetric recursive shadowcasting, after Albert Ford's "Symmetric Shadowcasting".
+ * The area around the viewer is split into four quadrants, and each quadrant is scanned
+ * row by row moving away from the viewer. Each row is bounded by a start and end slope;
+ * walls split a row into narrower slopes for the next row, so every cell in a quadrant
+ * is examined at most once. The diagonals are shared by two quadrants; whether a diagonal
+ * cell is visible only depends on the diagonal cells before it, so both quadrants agree, and
+ * only the up and down quadrants report them. Every cell is therefore visited at most once.
+ * Slopes are kept as integer fractions, so no floating point is involved.
+ *
+ * The result is symmetric: if A can see B, then B can see A. Cells outside the circle of
+ * the given radius are not reported.
+ */
+public class ShadowcastFov implements FovAlgorithm {
+    // Per quadrant: how the column and depth of a cell map onto x and y, and whether the
+    // quadrant reports the cells on its diagonals
+    private static final int[][] QUADRANTS = {
+        // colX, depthX, colY, depthY, diagonals
+        {1, 0, 0, 1, 1},   // up
+        {1, 0, 0, -1, 1},  // down
+        {0, 1, 1, 0, 0},   // right
+        {0, -1, 1, 0, 0},  // left
+    };
+
+    @Override
+    public void compute(TileGrid grid, int originX, int originY, int radius, CellVisitor visitor) {
+        visitor.visit(originX, originY);
+        for (int[] quadrant : QUADRANTS) {
+            scan(grid, originX, originY, radius, quadrant, visitor, 1, -1, 1, 1, 1);
+        }
+    }
+
+    /**
+     * Scans one row of a quadrant and recurses into the rows behind it.
+     * The row covers the columns between slopes startNum/startDen and endNum/endDen.
+     */
+    private void scan(TileGrid grid, int originX, int originY, int radius, int[] quadrant,
+                      CellVisitor visitor, int depth, int startNum, int startDen,
+                      int endNum, int endDen) {
+        if (depth > radius) {
+            return;
+        }
+        int minCol = roundTiesUp(depth * startNum, startDen);
+        int maxCol = roundTiesDown(depth * endNum, endDen);
+        int limit = radius * radius + radius;
+        boolean diagonals = quadrant[4] == 1;
+
+        // 0 = no previous cell, 1 = floor, 2 = wall
+        int previous = 0;
+        for (int col = minCol; col <= maxCol; col++) {
+            int x = originX + col * quadrant[0] + depth * quadrant[1];
+            int y = originY + col * quadrant[2] + depth * quadrant[3];
+            boolean inBounds = grid.inBounds(x, y);
+            boolean wall = !inBounds || grid.get(x, y) == Tileset.WALL;
+
+            boolean symmetric = col * startDen >= depth * startNum && col * endDen <= depth * endNum;
+            boolean diagonal = col == depth || col == -depth;
+            if (inBounds && (wall || symmetric) && col * col + depth * depth <= limit
+                    && (diagonals || !diagonal)) {
+                visitor.visit(x, y);
+            }
+            if (previous == 2 && !wall) {
+                // Leaving a wall: the next row starts at this cell's left edge
+                startNum = 2 * col - 1;
+                startDen = 2 * depth;
+            }
+            if (previous == 1 && wall) {
+                // Entering a wall: the open span before it continues in the next row
+                scan(grid, originX, originY, radius, quadrant, visitor, depth + 1,
+                        startNum, startDen, 2 * col - 1, 2 * depth);
+            }
+            previous = wall ? 2 : 1;
+        }
+        if (previous == 1) {
+            scan(grid, originX, originY, radius, quadrant, visitor, depth + 1,
+                    startNum, startDen, endNum, endDen);
+        }
+    }
+
+    // Nearest integer to num/den, rounding halves up (den > 0)
+    private static int roundTiesUp(int num, int den) {
+        return Math.floorDiv(2 * num + den, 2 * den);
+    }
+
+    // Nearest integer to num/den, rounding halves down (den > 0)
+    private static int roundTiesDown(int num, int den) {
+        return -Math.floorDiv(den - 2 * num, 2 * den);
+    }
+}
@@ -0,0 +1,68 @@
+package core;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hands world snapshots from the simulation thread to the render thread without locks, using
+ * three snapshots. The simulation thread fills its back snapshot and swaps it with the ready
+ * one; the render thread swaps its front snapshot with the ready one whenever the ready one is
+ * newer. Neither thread ever waits for the other, and a slow renderer just skips snapshots.
+ */
+public class SnapshotExchange {
+    private final AtomicReference<WorldSnapshot> ready;
+    private WorldSnapshot back;   // Only touched by the simulation thread
+    private WorldSnapshot front;  // Only touched by the render thread
+    private long published;
+
+    /**
+     * Creates an exchange whose snapshots hold fog for a window around the given view size.
+     * @param width width of the world in tiles
+     * @param height height of the world in tiles
+     * @param viewWidth width of the view in tiles
+     * @param viewHeight height of the view in tiles
+     */
+    public SnapshotExchange(int width, int height, int viewWidth, int viewHeight) {
+        this.back = new WorldSnapshot(width, height, viewWidth, viewHeight);
+        this.front = new WorldSnapshot(width, height, viewWidth, viewHeight);
+        this.ready = new AtomicReference<>(new WorldSnapshot(width, height, viewWidth, viewHeight));
+    }
+
+    /**
+     * Simulation thread: copies the game state into the back snapshot and makes it the ready
+     * one, replacing any ready snapshot the render thread has not taken yet.
+     */
+    public void publish(World world, Avatar avatar, Vision vision) {
+        publish(world, avatar, vision, 0);
+    }
+
+    /**
+     * Same as publish(World, Avatar, Vision), but also records when the oldest input not yet
+     * shown was received.
+     */
+    public void publish(World world, Avatar avatar, Vision vision, long inputNanos) {
+        back.capture(world, avatar, vision, inputNanos);
+        published += 1;
+        back.setSequence(published);
+        back = ready.getAndSet(back);
+    }
+
+    /**
+     * Gets the sequence number of the last publish. Only the simulation thread may call this.
+     */
+    public long lastPublished() {
+        return published;
+    }
+
+    /**
+     * Render thread: gets the newest published snapshot. The snapshot stays valid until the
+     * next call.
+     *
+     * @return The newest snapshot, or an empty one with sequence 0 before the first publish
+     */
+    public WorldSnapshot latest() {
+        if (ready.get().getSequence() > front.getSequence()) {
+            front = ready.getAndSet(front);
+        }
+        return front;
+    }
+}
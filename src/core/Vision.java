@@ -1,31 +1,74 @@
 package core;
 
-import tileengine.TETile;
-import tileengine.Tileset;
+import tileengine.TileGrid;
 
 /**
  * Encapsulates line-of-sight and fog-of-war visibility logic.
  */
 public class Vision {
     private final int WIDTH, HEIGHT;
-    private final TETile[][] worldGrid;
+    private final TileGrid worldGrid;
     private final boolean[][] visibilityGrid;
     private final boolean[][] exploredGrid;
     private boolean lineOfSightEnabled = false;
     private Avatar avatar;
+    private FovAlgorithm fovAlgorithm = new ShadowcastFov();
+    private int visionRadius = 8;
 
-    public Vision(TETile[][] worldGrid, int width, int height) {
+    // Position and radius of the last computed update; visibility is only set within
+    // lastRadius of (lastX, lastY). A negative radius means nothing has been computed yet.
+    private int lastX = -1;
+    private int lastY = -1;
+    private int lastRadius = -1;
+    private boolean dirty = true;
+
+    // Counts changes to what is shown, so copies of the grids can tell when they are stale
+    private long revision;
+
+    // Created once so that updates do not allocate
+    private final FovAlgorithm.CellVisitor markVisible;
+
+    public Vision(TileGrid worldGrid, int width, int height) {
         this.worldGrid = worldGrid;
         this.WIDTH = width;
         this.HEIGHT = height;
         this.visibilityGrid = new boolean[width][height];
         this.exploredGrid = new boolean[width][height];
+        this.markVisible = (x, y) -> {
+            visibilityGrid[x][y] = true;
+            exploredGrid[x][y] = true;
+        };
     }
 
     public void setAvatar(Avatar avatar) {
         this.avatar = avatar;
     }
 
+    /**
+     * Chooses the field-of-view algorithm, e.g. new RaycastFov() for the legacy ray caster.
+     */
+    public void setFovAlgorithm(FovAlgorithm fovAlgorithm) {
+        this.fovAlgorithm = fovAlgorithm;
+        invalidate();
+        updateVisibility();
+    }
+
+    public int getVisionRadius() {
+        return visionRadius;
+    }
+
+    /**
+     * Sets how far the avatar can see, in tiles.
+     */
+    public void setVisionRadius(int visionRadius) {
+        if (visionRadius < 0) {
+            throw new IllegalArgumentException("Vision radius cannot be negative: " + visionRadius);
+        }
+        this.visionRadius = visionRadius;
+        invalidate();
+        updateVisibility();
+    }
+
     public boolean isLineOfSightEnabled() {
         return lineOfSightEnabled;
     }
@@ -38,54 +81,73 @@ public class Vision {
         return exploredGrid;
     }
 
+    /**
+     * Gets a number that changes whenever the visibility grids or the line of sight setting
+     * change.
+     */
+    public long getRevision() {
+        return revision;
+    }
+
     public void toggleLineOfSight() {
         lineOfSightEnabled = !lineOfSightEnabled;
-        if (lineOfSightEnabled) {
-            clearGrids();
-            updateVisibility();
-        } else {
-            // reveal all
-            for (int x = 0; x < WIDTH; x++) {
-                for (int y = 0; y < HEIGHT; y++) {
-                    visibilityGrid[x][y] = true;
-                    exploredGrid[x][y] = true;
-                }
-            }
-        }
+        revision++;
+        // Turning line of sight off just stops the fog from being drawn; what has been
+        // explored so far is kept for when it is turned back on.
+        invalidate();
+        updateVisibility();
     }
 
-    private void clearGrids() {
+    /**
+     * Puts back saved vision state. Visibility itself is recomputed on the next update.
+     */
+    public void restore(boolean lineOfSightEnabled, boolean[][] explored) {
+        this.lineOfSightEnabled = lineOfSightEnabled;
         for (int x = 0; x < WIDTH; x++) {
-            for (int y = 0; y < HEIGHT; y++) {
-                visibilityGrid[x][y] = false;
-                exploredGrid[x][y] = false;
-            }
+            System.arraycopy(explored[x], 0, exploredGrid[x], 0, HEIGHT);
         }
+        revision++;
+        invalidate();
+    }
+
+    /**
+     * Forces the next updateVisibility call to recompute, even if the avatar has not moved.
+     */
+    public void invalidate() {
+        dirty = true;
     }
 
+    /**
+     * Recomputes which tiles are visible, if the avatar moved or the view was invalidated
+     * since the last update. Terrain does not change after generation (coins are entities and
+     * never block sight), so nothing else can change what is visible. Only the previous
+     * vision window is cleared, and explored tiles stay explored.
+     */
     public void updateVisibility() {
         if (avatar == null || !lineOfSightEnabled) return;
-        clearGrids();
         int ax = avatar.getX(), ay = avatar.getY();
-        visibilityGrid[ax][ay] = true;
-        exploredGrid[ax][ay] = true;
-        int visionRadius = 8;
-        for (int deg = 0; deg < 360; deg++) {
-            castRay(ax, ay, Math.toRadians(deg), visionRadius);
-        }
+        if (!dirty && ax == lastX && ay == lastY) return;
+
+        clearWindow();
+        fovAlgorithm.compute(worldGrid, ax, ay, visionRadius, markVisible);
+        lastX = ax;
+        lastY = ay;
+        lastRadius = visionRadius;
+        dirty = false;
+        revision++;
     }
 
-    private void castRay(int startX, int startY, double angle, int maxDistance) {
-        double dx = Math.cos(angle), dy = Math.sin(angle);
-        double x0 = startX + 0.5, y0 = startY + 0.5;
-        double step = 0.2;
-        for (double dist = step; dist <= maxDistance; dist += step) {
-            double x = x0 + dx * dist, y = y0 + dy * dist;
-            int xi = (int) Math.floor(x), yi = (int) Math.floor(y);
-            if (xi < 0 || xi >= WIDTH || yi < 0 || yi >= HEIGHT) break;
-            visibilityGrid[xi][yi] = true;
-            exploredGrid[xi][yi] = true;
-            if (worldGrid[xi][yi] == Tileset.WALL) break;
+    // Clear visibility in the square around the last computed position
+    private void clearWindow() {
+        if (lastRadius < 0) {
+            return;
+        }
+        int minX = Math.max(0, lastX - lastRadius), maxX = Math.min(WIDTH - 1, lastX + lastRadius);
+        int minY = Math.max(0, lastY - lastRadius), maxY = Math.min(HEIGHT - 1, lastY + lastRadius);
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
+                visibilityGrid[x][y] = false;
+            }
         }
     }
 }
@@ -1,10 +1,15 @@
 package core;
 
+import tileengine.BitGrid;
+import tileengine.EntityLayer;
 import tileengine.TETile;
+import tileengine.TileGrid;
 import tileengine.Tileset;
 import utils.RandomUtils;
+import utils.Zobrist;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Random;
 
@@ -14,10 +19,15 @@ public class World {
     private final int HEIGHT;
     private final int MARGIN; // Min distance between room and world boarder
 
-    private final TETile[][] worldGrid;
+    private final TileGrid worldGrid;
+    private final EntityLayer entities;
+    private BitGrid floorMask;
     private Random randomGenerator;
 
-    private final int desiredRoomCount = 20;
+    private final int desiredRoomCount;
+
+    // Candidate rooms tried per desired room before placement gives up
+    private static final int PLACEMENT_ATTEMPTS_PER_ROOM = 1000;
 
     private final int minRoomHeight = 4;
     private final int maxRoomHeight = 12;
@@ -25,6 +35,8 @@ public class World {
     private final int maxRoomWidth = 9;
 
     private final List<Room> rooms;
+    private RoomIndex roomIndex;
+    private String placementFailure;
 
     // Default coin count
     private final int totalCoinCount = 10;
@@ -33,43 +45,83 @@ public class World {
     // Coin related fields
     private final Coin coin;
 
+    // Hash of the terrain, recomputed on the next digest() after the terrain changes
+    private long terrainDigest;
+    private boolean terrainDigestValid;
+    private static final long COLLECTED_KIND = 1L << 32;
+
     public World(int width, int height) {
+        this(width, height, defaultRoomCount(width, height));
+    }
+
+    public World(int width, int height, int desiredRoomCount) {
         this.WIDTH = width;
         this.HEIGHT = height;
         this.MARGIN = 2;
-        this.worldGrid = new TETile[this.WIDTH][this.HEIGHT];
+        this.desiredRoomCount = desiredRoomCount;
+        this.worldGrid = new TileGrid(this.WIDTH, this.HEIGHT);
+        this.entities = new EntityLayer(this.WIDTH, this.HEIGHT);
         this.randomGenerator = null;
         this.rooms = new ArrayList<>();
-        this.coin = new Coin(this.worldGrid, this.WIDTH, this.HEIGHT, totalCoinCount);
+        this.roomIndex = new RoomIndex(width, height, maxRoomWidth, maxRoomHeight);
+        this.coin = new Coin(this.worldGrid, this.entities, this.WIDTH, this.HEIGHT, totalCoinCount);
     }
 
     // Main method
     public void generateWorld(long SEED) {
-        this.randomGenerator = new Random(SEED);
-        initializeGrid();
-        placeRooms();
-        connectRooms();
+        generateTerrain(SEED);
         addWalls();
 
         // Place coins after the world is generated
-        coin.placeCoins(randomGenerator);
+        placeCoins();
+    }
+
+    // Rooms and hallways only, leaving walls and coins to the caller
+    public void generateTerrain(long SEED) {
+        setSeed(SEED);
+        initializeGrid();
+        placeRooms();
+        connectRooms();
     }
 
     // World construction:
 
+    // Reset the random generator, so the stages below can also be run one at a time
+    public void setSeed(long SEED) {
+        this.randomGenerator = new Random(SEED);
+    }
+
     // Set up empty world grid
     public void initializeGrid() {
-        for (int x = 0; x < this.WIDTH; x++) {
-            for (int y = 0; y < this.HEIGHT; y++) {
-                this.worldGrid[x][y] = Tileset.NOTHING;
-            }
-        }
+        terrainDigestValid = false;
+        this.worldGrid.fill(Tileset.NOTHING);
     }
 
-    // Place pseudorandom rooms in world grid
+    // Place pseudorandom rooms in world grid, giving up after a bounded number of attempts
     public void placeRooms() {
+        terrainDigestValid = false;
+        rooms.clear();
+        roomIndex = new RoomIndex(this.WIDTH, this.HEIGHT, maxRoomWidth, maxRoomHeight);
+        placementFailure = null;
+
+        // Every candidate size must leave a non-empty range of start positions
+        if (this.WIDTH - (maxRoomWidth - 1) - this.MARGIN <= 0
+                || this.HEIGHT - (maxRoomHeight - 1) - this.MARGIN <= 0) {
+            placementFailure = "World " + this.WIDTH + "x" + this.HEIGHT
+                    + " is too small to hold rooms up to " + maxRoomWidth + "x" + maxRoomHeight;
+            return;
+        }
+
+        long maxAttempts = (long) desiredRoomCount * PLACEMENT_ATTEMPTS_PER_ROOM;
+        long attempts = 0;
         int roomCount = 0;
         while(roomCount < desiredRoomCount) {
+            if (attempts >= maxAttempts) {
+                placementFailure = "Placed " + roomCount + " of " + desiredRoomCount
+                        + " rooms before running out of " + maxAttempts + " placement attempts";
+                return;
+            }
+            attempts++;
             int roomWidth = RandomUtils.uniform(randomGenerator, minRoomWidth, maxRoomWidth);
             int roomHeight = RandomUtils.uniform(randomGenerator, minRoomHeight, maxRoomHeight);
             int startX = randomGenerator.nextInt(this.WIDTH - roomWidth - this.MARGIN);
@@ -78,6 +130,7 @@ public class World {
             // Use isValidRoom method to check if the room can be placed.
             if (isValidRoom(newRoom)) {
                 rooms.add(newRoom);
+                roomIndex.add(newRoom);
                 markRoomTiles(newRoom);  // Update the grid with the room's tiles
                 roomCount++;
             }
@@ -86,6 +139,7 @@ public class World {
 
     // Connect rooms with hallways
     public void connectRooms() {
+        terrainDigestValid = false;
         if (rooms.isEmpty()) {
             return;
         }
@@ -96,13 +150,41 @@ public class World {
 
     // Add walls around rooms and hallways
     public void addWalls() {
+        terrainDigestValid = false;
         HallwayGenerator hallwayGenerator = new HallwayGenerator(worldGrid, rooms);
-        hallwayGenerator.addWallsAroundHallways();
+        floorMask = hallwayGenerator.addWallsAroundHallways();
     }
 
+    // Scatter coins over the floor tiles, replacing any entities placed before
+    public void placeCoins() {
+        entities.clear();
+        coin.placeCoins(randomGenerator);
+    }
 
-    public void collectCoin() {
-        coin.collectCoin();
+    /**
+     * Puts saved terrain and coins in place of generating them. The rooms are not saved, so
+     * getRooms is empty afterwards.
+     *
+     * @param terrain The saved terrain; it must be the size of this world
+     * @param coinCells Row-major cell indexes of the coins not collected yet
+     * @param collectedCoins How many coins were collected
+     * @param totalCoins How many coins were placed
+     */
+    public void restore(TileGrid terrain, int[] coinCells, int collectedCoins, int totalCoins) {
+        worldGrid.copyFrom(terrain);
+        terrainDigestValid = false;
+        rooms.clear();
+        floorMask = worldGrid.mask(Tileset.FLOOR);
+        entities.clear();
+        coin.restore(coinCells, collectedCoins, totalCoins);
+    }
+
+    public boolean hasCoinAt(int x, int y) {
+        return coin.hasCoinAt(x, y);
+    }
+
+    public boolean collectCoinAt(int x, int y) {
+        return coin.collectCoinAt(x, y);
     }
 
     public boolean allCoinsCollected() {
@@ -117,8 +199,58 @@ public class World {
         return coin.getCollectedCoins();
     }
 
+    /**
+     * Gets a digest of the world's state: the terrain, the entities (the avatar and coins) and
+     * the number of coins collected. The entity and coin parts are Zobrist hashes that are
+     * updated in O(1) as the avatar moves and collects coins; the terrain is hashed once
+     * after it changes. Two worlds in the same state have the same digest on any run.
+     *
+     * @return The digest
+     */
+    public long digest() {
+        if (!terrainDigestValid) {
+            terrainDigest = hashTerrain();
+            terrainDigestValid = true;
+        }
+        return terrainDigest ^ entities.digest() ^ collectedKey(getCollectedCoins());
+    }
+
+    /**
+     * Gets the part of digest() that stands for the number of coins collected.
+     *
+     * @param collectedCoins The number of coins collected
+     * @return The key to XOR into the digest
+     */
+    public static long collectedKey(int collectedCoins) {
+        return Zobrist.key(COLLECTED_KIND, collectedCoins);
+    }
+
+    /**
+     * Gets the rooms placed by the last call to placeRooms.
+     *
+     * @return An unmodifiable view of the rooms
+     */
+    public List<Room> getRooms() {
+        return Collections.unmodifiableList(rooms);
+    }
+
+    /**
+     * Explains why the last call to placeRooms fell short of the desired room count.
+     *
+     * @return The reason, or null if every desired room was placed
+     */
+    public String getPlacementFailure() {
+        return placementFailure;
+    }
+
     // Helper Methods:
 
+    // 20 rooms on the 80x40 world the game has always used, and as many per area on larger
+    // worlds, so a world larger than the window is not mostly empty
+    private static int defaultRoomCount(int width, int height) {
+        return Math.max(20, (int) ((long) width * height / 160));
+    }
+
     // Check if newRoom is valid in the current world context
     public boolean isValidRoom(Room newRoom) {
         // First, check if the room is within the valid boundaries.
@@ -129,30 +261,78 @@ public class World {
             return false;
         }
 
-        // Now, check against each already-placed room for overlap.
-        for (Room existingRoom : rooms) {
-            if (newRoom.overlapsWith(existingRoom)) {
-                return false;
-            }
+        // Now, check against the nearby already-placed rooms for overlap.
+        return !roomIndex.overlapsAny(newRoom);
+    }
+
+    // FNV-1a over the size and the tile ids, then scrambled
+    private long hashTerrain() {
+        long h = 0xCBF29CE484222325L;
+        h = (h ^ WIDTH) * 0x100000001B3L;
+        h = (h ^ HEIGHT) * 0x100000001B3L;
+        for (int i = 0; i < worldGrid.size(); i++) {
+            h = (h ^ worldGrid.idAt(i)) * 0x100000001B3L;
         }
-        return true;
+        return Zobrist.mix(h);
     }
 
     // Place RoomTiles in valid newRoom
     private void markRoomTiles(Room newRoom) {
         for (int x = newRoom.getStartX(); x <= newRoom.getStartX() + newRoom.getWidth() - 1; x++) {
             for (int y = newRoom.getStartY(); y <= newRoom.getStartY() + newRoom.getHeight() - 1; y++) {
-                worldGrid[x][y] = Tileset.FLOOR;
+                worldGrid.set(x, y, Tileset.FLOOR);
             }
         }
     }
     
     /**
-     * Gets the world grid.
+     * Gets the world grid. It holds only the terrain; the avatar and coins are in the entity
+     * layer.
      * 
-     * @return The 2D array representing the world
+     * @return The tile grid representing the world
      */
-    public TETile[][] getWorldGrid() {
+    public TileGrid getWorldGrid() {
         return worldGrid;
     }
+
+    /**
+     * Gets the layer of entities (the avatar and coins) drawn on top of the terrain.
+     *
+     * @return The entity layer
+     */
+    public EntityLayer getEntities() {
+        return entities;
+    }
+
+    /**
+     * Gets what is shown at a position: the entity there, if any, otherwise the terrain.
+     *
+     * @param x The x-coordinate
+     * @param y The y-coordinate
+     * @return The tile at that position
+     */
+    public TETile getTile(int x, int y) {
+        TETile entity = entities.get(x, y);
+        return entity != null ? entity : worldGrid.get(x, y);
+    }
+
+    /**
+     * Builds a copy of the terrain with the entities drawn into it, i.e. the world as it looks.
+     *
+     * @return A new tile grid
+     */
+    public TileGrid toTileGrid() {
+        TileGrid grid = worldGrid.copy();
+        entities.forEach((x, y, tile) -> grid.set(x, y, tile));
+        return grid;
+    }
+
+    /**
+     * Gets the bit mask of floor cells computed when the walls were added.
+     *
+     * @return The floor mask, or null if addWalls has not run yet
+     */
+    public BitGrid getFloorMask() {
+        return floorMask;
+    }
 }
@@ -0,0 +1,116 @@
+package core;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Generates worlds for a range of seeds in parallel, without opening a window.
+ * Seeds are split across a fork-join pool, and each world is handed to a consumer as soon
+ * as it is generated, then dropped, so memory use does not grow with the number of seeds.
+ * Every world has its own Random built from its seed, so a seed always produces the same
+ * world no matter which thread generates it.
+ */
+public class WorldBatchGenerator implements AutoCloseable {
+    // Seeds generated sequentially by one task before it stops splitting
+    private static final int SEEDS_PER_TASK = 16;
+
+    private final int width;
+    private final int height;
+    private final int roomCount;
+    private final ForkJoinPool pool;
+
+    /**
+     * Receives generated worlds. Called from several threads at once, so implementations
+     * must be thread-safe. A world that could not fit every room is still passed on; its
+     * getPlacementFailure() says how many were placed.
+     */
+    @FunctionalInterface
+    public interface WorldConsumer {
+        void accept(long seed, World world);
+    }
+
+    /**
+     * Creates a generator that uses one thread per available processor.
+     * @param width width of each world
+     * @param height height of each world
+     * @param roomCount desired number of rooms in each world
+     */
+    public WorldBatchGenerator(int width, int height, int roomCount) {
+        this(width, height, roomCount, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a generator with the given number of worker threads.
+     * @param width width of each world
+     * @param height height of each world
+     * @param roomCount desired number of rooms in each world
+     * @param parallelism number of worker threads
+     */
+    public WorldBatchGenerator(int width, int height, int roomCount, int parallelism) {
+        this.width = width;
+        this.height = height;
+        this.roomCount = roomCount;
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Generates the worlds for seeds firstSeed (inclusive) to endSeed (exclusive) and passes
+     * each one to the consumer. Returns once every world has been consumed. Worlds reach
+     * the consumer in no particular order.
+     * @param firstSeed first seed to generate
+     * @param endSeed seed after the last one to generate
+     * @param consumer receives each seed and its world
+     */
+    public void generate(long firstSeed, long endSeed, WorldConsumer consumer) {
+        if (endSeed <= firstSeed) {
+            return;
+        }
+        pool.invoke(new SeedRangeTask(firstSeed, endSeed, consumer));
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    /**
+     * Generates a single world. This is what each worker runs for every seed.
+     * @param seed the seed to generate
+     * @return the generated world
+     */
+    public World generateOne(long seed) {
+        World world = new World(width, height, roomCount);
+        world.generateWorld(seed);
+        return world;
+    }
+
+    /**
+     * Splits a seed range in half until it is small enough to run directly.
+     */
+    private class SeedRangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final long from;
+        private final long to;
+        private final WorldConsumer consumer;
+
+        SeedRangeTask(long from, long to, WorldConsumer consumer) {
+            this.from = from;
+            this.to = to;
+            this.consumer = consumer;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SEEDS_PER_TASK) {
+                for (long seed = from; seed < to; seed++) {
+                    consumer.accept(seed, generateOne(seed));
+                }
+                return;
+            }
+            long middle = from + (to - from) / 2;
+            invokeAll(new SeedRangeTask(from, middle, consumer),
+                      new SeedRangeTask(middle, to, consumer));
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package core;
+
+import tileengine.EntityLayer;
+
+/**
+ * Everything the render thread needs to draw one frame, copied from the game state by the
+ * simulation thread. Snapshots are reused through a SnapshotExchange, so a snapshot is only
+ * ever read by the render thread after it has been published, and only written by the
+ * simulation thread after the render thread has let go of it.
+ *
+ * The terrain is not copied: it does not change after generation, so both threads read the
+ * world grid directly. The fog is only copied for a window around the avatar a little larger
+ * than the view, so a snapshot's size does not grow with the world.
+ */
+public class WorldSnapshot {
+    // How many tiles the fog window reaches past the view on each side, so that a camera
+    // still catching up with the avatar has fog to show
+    static final int FOG_MARGIN = 8;
+
+    private long sequence;
+    private int avatarX;
+    private int avatarY;
+    private final EntityLayer entities;
+    private boolean lineOfSightEnabled;
+    private final boolean[][] visibility;
+    private final boolean[][] explored;
+    private int fogX;
+    private int fogY;
+    private long visionRevision = -1;
+    private int collectedCoins;
+    private int totalCoins;
+    private long inputNanos;
+
+    /**
+     * Creates an empty snapshot.
+     * @param width width of the world in tiles
+     * @param height height of the world in tiles
+     * @param viewWidth width of the view in tiles
+     * @param viewHeight height of the view in tiles
+     */
+    public WorldSnapshot(int width, int height, int viewWidth, int viewHeight) {
+        this.entities = new EntityLayer(width, height);
+        int fogWidth = Math.min(width, viewWidth + 2 * FOG_MARGIN);
+        int fogHeight = Math.min(height, viewHeight + 2 * FOG_MARGIN);
+        this.visibility = new boolean[fogWidth][fogHeight];
+        this.explored = new boolean[fogWidth][fogHeight];
+    }
+
+    /**
+     * Copies the current game state into this snapshot. The fog window is centered on the
+     * avatar as far as the world allows, and is only copied if vision changed or the window
+     * moved since this snapshot last captured it.
+     */
+    void capture(World world, Avatar avatar, Vision vision, long inputNanos) {
+        this.inputNanos = inputNanos;
+        avatarX = avatar.getX();
+        avatarY = avatar.getY();
+        entities.copyFrom(world.getEntities());
+        lineOfSightEnabled = vision.isLineOfSightEnabled();
+        boolean[][] worldVisibility = vision.getVisibilityGrid();
+        int x0 = windowStart(avatarX, visibility.length, worldVisibility.length);
+        int y0 = windowStart(avatarY, visibility[0].length, worldVisibility[0].length);
+        if (vision.getRevision() != visionRevision || x0 != fogX || y0 != fogY) {
+            fogX = x0;
+            fogY = y0;
+            copyWindow(worldVisibility, visibility);
+            copyWindow(vision.getExploredGrid(), explored);
+            visionRevision = vision.getRevision();
+        }
+        collectedCoins = world.getCollectedCoins();
+        totalCoins = world.getTotalCoins();
+    }
+
+    void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    /**
+     * Gets the number of the publish that filled this snapshot; later snapshots have larger
+     * numbers, and 0 means the snapshot was never filled.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public int getAvatarX() {
+        return avatarX;
+    }
+
+    public int getAvatarY() {
+        return avatarY;
+    }
+
+    public EntityLayer getEntities() {
+        return entities;
+    }
+
+    public boolean isLineOfSightEnabled() {
+        return lineOfSightEnabled;
+    }
+
+    /**
+     * Gets the visibility of the tiles in the fog window, indexed from getFogX(), getFogY().
+     */
+    public boolean[][] getVisibilityGrid() {
+        return visibility;
+    }
+
+    /**
+     * Gets which tiles in the fog window have been seen, indexed from getFogX(), getFogY().
+     */
+    public boolean[][] getExploredGrid() {
+        return explored;
+    }
+
+    /**
+     * Gets the world x coordinate of the fog window's first column.
+     */
+    public int getFogX() {
+        return fogX;
+    }
+
+    /**
+     * Gets the world y coordinate of the fog window's first row.
+     */
+    public int getFogY() {
+        return fogY;
+    }
+
+    public int getCollectedCoins() {
+        return collectedCoins;
+    }
+
+    public int getTotalCoins() {
+        return totalCoins;
+    }
+
+    /**
+     * Gets when the oldest input that may not have been shown yet was received, as a
+     * System.nanoTime value, for measuring input latency.
+     *
+     * @return The time, or 0 if all input had been shown when the snapshot was taken
+     */
+    public long getInputNanos() {
+        return inputNanos;
+    }
+
+    // Helper Methods
+
+    // Where a window of the given size centered on a tile starts, kept inside the world
+    private static int windowStart(int center, int size, int worldSize) {
+        return Math.max(0, Math.min(center - size / 2, worldSize - size));
+    }
+
+    private void copyWindow(boolean[][] from, boolean[][] to) {
+        for (int x = 0; x < to.length; x++) {
+            System.arraycopy(from[fogX + x], fogY, to[x], 0, to[x].length);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package tileengine;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.io.PrintStream;
+import java.util.Arrays;
+
+/**
+ * Draws to text, one character per tile, without a display. Frames use the same layout as
+ * TETile.toString: the top row first, each row ending in a newline. With ANSI colors on, each
+ * character also carries its tile's text and background colors as 24-bit escape codes.
+ *
+ * Tiles are placed in the nearest whole cell, fonts are ignored, and there is no pointer.
+ */
+public class AsciiBackend implements RenderBackend {
+    private static final String ESC = "\u001b[";
+
+    private final boolean ansi;
+    private final PrintStream out;
+    private int width;
+    private int height;
+    private char[] chars;
+    private int[] foreground;
+    private int[] background;
+    private String lastFrame = "";
+
+    /**
+     * Creates a backend that keeps plain text frames without printing them.
+     */
+    public AsciiBackend() {
+        this(false, null);
+    }
+
+    /**
+     * Creates a backend that prints each frame as it is shown.
+     * @param ansi whether to add ANSI color codes and move the cursor home before each frame
+     * @param out where to print frames, or null to only keep the last one
+     */
+    public AsciiBackend(boolean ansi, PrintStream out) {
+        this.ansi = ansi;
+        this.out = out;
+    }
+
+    @Override
+    public void open(int width, int height, int tileSize) {
+        this.width = width;
+        this.height = height;
+        this.chars = new char[width * height];
+        this.foreground = new int[width * height];
+        this.background = new int[width * height];
+        clear(Color.black);
+    }
+
+    @Override
+    public Graphics2D surface() {
+        return null;
+    }
+
+    @Override
+    public void clear(Color color) {
+        checkOpen();
+        Arrays.fill(chars, Tileset.NOTHING.character());
+        Arrays.fill(foreground, color.getRGB());
+        Arrays.fill(background, color.getRGB());
+    }
+
+    @Override
+    public void drawTile(TETile tile, double x, double y, Font font) {
+        checkOpen();
+        int column = (int) Math.round(x);
+        int row = height - 1 - (int) Math.round(y);
+        if (column < 0 || column >= width || row < 0 || row >= height) {
+            return;
+        }
+        int i = row * width + column;
+        chars[i] = tile.character();
+        foreground[i] = tile.textColor().getRGB();
+        background[i] = tile.backgroundColor().getRGB();
+    }
+
+    @Override
+    public void text(double x, double y, String text, Font font, Color color, Align align) {
+        checkOpen();
+        int row = height - 1 - (int) Math.floor(y);
+        if (row < 0 || row >= height) {
+            return;
+        }
+        int start = (int) Math.round(x);
+        if (align == Align.CENTER) {
+            start = (int) Math.round(x - text.length() / 2.0);
+        } else if (align == Align.RIGHT) {
+            start -= text.length();
+        }
+        for (int k = 0; k < text.length(); k += 1) {
+            int column = start + k;
+            if (column >= 0 && column < width) {
+                chars[row * width + column] = text.charAt(k);
+                foreground[row * width + column] = color.getRGB();
+            }
+        }
+    }
+
+    @Override
+    public void show() {
+        checkOpen();
+        lastFrame = ansi ? ansiFrame() : plainFrame();
+        if (out != null) {
+            out.print(lastFrame);
+            out.flush();
+        }
+    }
+
+    @Override
+    public double mouseX() {
+        return -1;
+    }
+
+    @Override
+    public double mouseY() {
+        return -1;
+    }
+
+    /**
+     * Gets the last frame shown.
+     * @return the frame's text, or an empty string before the first frame
+     */
+    public String getLastFrame() {
+        return lastFrame;
+    }
+
+    // Helper Methods
+
+    private void checkOpen() {
+        if (chars == null) {
+            throw new IllegalStateException("AsciiBackend has not been opened");
+        }
+    }
+
+    private String plainFrame() {
+        StringBuilder sb = new StringBuilder((width + 1) * height);
+        for (int row = 0; row < height; row += 1) {
+            sb.append(chars, row * width, width);
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    // Color codes are only written where they change
+    private String ansiFrame() {
+        StringBuilder sb = new StringBuilder((width + 1) * height * 4);
+        sb.append(ESC).append('H');
+        for (int row = 0; row < height; row += 1) {
+            int lastForeground = 0;
+            int lastBackground = 0;
+            for (int column = 0; column < width; column += 1) {
+                int i = row * width + column;
+                if (column == 0 || foreground[i] != lastForeground) {
+                    appendColor(sb, 38, foreground[i]);
+                    lastForeground = foreground[i];
+                }
+                if (column == 0 || background[i] != lastBackground) {
+                    appendColor(sb, 48, background[i]);
+                    lastBackground = background[i];
+                }
+                sb.append(chars[i]);
+            }
+            sb.append(ESC).append("0m\n");
+        }
+        return sb.toString();
+    }
+
+    private static void appendColor(StringBuilder sb, int code, int rgb) {
+        sb.append(ESC).append(code).append(";2;")
+                .append((rgb >> 16) & 0xFF).append(';')
+                .append((rgb >> 8) & 0xFF).append(';')
+                .append(rgb & 0xFF).append('m');
+    }
+}
@@ -0,0 +1,154 @@
+package tileengine;
+
+import java.util.Arrays;
+
+/**
+ * A 2D grid of bits packed 64 cells to a long. Each row starts on a fresh word, and bit i of
+ * word w in a row is the cell at x = w * 64 + i. TileGrid builds these as masks of a single
+ * tile type, so that whole-grid passes can work on 64 cells at a time.
+ */
+public class BitGrid {
+    private final int width;
+    private final int height;
+    private final int wordsPerRow;
+    private final long[] words;
+    // Valid bits of the last word in each row
+    private final long lastWordMask;
+
+    /**
+     * Creates an empty grid of the given size.
+     * @param width width of the grid in cells
+     * @param height height of the grid in cells
+     */
+    public BitGrid(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.wordsPerRow = (width + 63) >>> 6;
+        this.words = new long[wordsPerRow * height];
+        this.lastWordMask = (width & 63) == 0 ? -1L : (1L << (width & 63)) - 1;
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    public boolean get(int x, int y) {
+        return (words[y * wordsPerRow + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    public void set(int x, int y) {
+        words[y * wordsPerRow + (x >>> 6)] |= 1L << x;
+    }
+
+    public void clear(int x, int y) {
+        words[y * wordsPerRow + (x >>> 6)] &= ~(1L << x);
+    }
+
+    /**
+     * Clears every cell.
+     */
+    public void clearAll() {
+        Arrays.fill(words, 0L);
+    }
+
+    /**
+     * Number of set cells.
+     * @return the count
+     */
+    public int cardinality() {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Keeps only the cells that are also set in other. Both grids must have the same size.
+     * @param other the grid to intersect with
+     */
+    public void and(BitGrid other) {
+        checkSameSize(other);
+        for (int i = 0; i < words.length; i++) {
+            words[i] &= other.words[i];
+        }
+    }
+
+    /**
+     * Clears the cells that are set in other. Both grids must have the same size.
+     * @param other the grid to subtract
+     */
+    public void andNot(BitGrid other) {
+        checkSameSize(other);
+        for (int i = 0; i < words.length; i++) {
+            words[i] &= ~other.words[i];
+        }
+    }
+
+    /**
+     * Computes the 8-neighbour dilation of this grid: a cell is set in the result if it or
+     * any of the 8 cells around it is set here. Rows are OR-ed together first, then each
+     * word is shifted one cell left and right, carrying the edge bits between words.
+     * @return a new grid holding the dilation
+     */
+    public BitGrid dilate() {
+        BitGrid out = new BitGrid(width, height);
+        for (int y = 0; y < height; y++) {
+            int row = y * wordsPerRow;
+            long previous = 0L;
+            long current = verticalOr(y, 0);
+            for (int w = 0; w < wordsPerRow; w++) {
+                long next = w + 1 < wordsPerRow ? verticalOr(y, w + 1) : 0L;
+                out.words[row + w] = current
+                        | (current << 1) | (previous >>> 63)
+                        | (current >>> 1) | (next << 63);
+                previous = current;
+                current = next;
+            }
+            out.words[row + wordsPerRow - 1] &= lastWordMask;
+        }
+        return out;
+    }
+
+    /**
+     * Raw word access for passes that process 64 cells at a time.
+     * @param y row of the word
+     * @param w index of the word within the row
+     * @return the bits of cells w * 64 to w * 64 + 63 in row y
+     */
+    public long word(int y, int w) {
+        return words[y * wordsPerRow + w];
+    }
+
+    /**
+     * Number of words in each row.
+     * @return ceil(width / 64)
+     */
+    public int wordsPerRow() {
+        return wordsPerRow;
+    }
+
+    // Helper Methods
+
+    private long verticalOr(int y, int w) {
+        long bits = words[y * wordsPerRow + w];
+        if (y > 0) {
+            bits |= words[(y - 1) * wordsPerRow + w];
+        }
+        if (y + 1 < height) {
+            bits |= words[(y + 1) * wordsPerRow + w];
+        }
+        return bits;
+    }
+
+    private void checkSameSize(BitGrid other) {
+        if (other.width != width || other.height != height) {
+            throw new IllegalArgumentException("Grid sizes differ: " + other.width + "x"
+                    + other.height + " vs " + width + "x" + height);
+        }
+    }
+}
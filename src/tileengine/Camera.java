@@ -0,0 +1,128 @@
+package tileengine;
+
+/**
+ * A window-sized view onto a world that may be much larger than the window. The camera's
+ * position is the world coordinate of the bottom left corner of the view, and may be
+ * fractional so that the view can scroll smoothly between tiles.
+ *
+ * Pass a camera to TERenderer.renderFrame to draw only the tiles inside the view.
+ */
+public class Camera {
+    private final int width;
+    private final int height;
+    private double x;
+    private double y;
+
+    /**
+     * Creates a camera looking at the bottom left corner of the world.
+     * @param width width of the view in tiles
+     * @param height height of the view in tiles
+     */
+    public Camera(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Camera size must be positive: " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Moves the view so that its bottom left corner is at the given world position.
+     * @param x world x coordinate
+     * @param y world y coordinate
+     */
+    public void moveTo(double x, double y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    /**
+     * Centers the view on a tile straight away. The view stays aligned to whole tiles, so with
+     * an even width or height the tile is just right of or above the middle.
+     * @param tileX x coordinate of the tile
+     * @param tileY y coordinate of the tile
+     */
+    public void centerOn(int tileX, int tileY) {
+        moveTo(tileX - width / 2, tileY - height / 2);
+    }
+
+    /**
+     * Moves the view part of the way towards being centered on a tile, for smooth scrolling.
+     * Call this once per frame. Once the view is within half a pixel of the target it snaps to it,
+     * so a camera that has caught up stops moving.
+     * @param tileX x coordinate of the tile
+     * @param tileY y coordinate of the tile
+     * @param fraction how much of the remaining distance to cover, from 0 to 1
+     */
+    public void follow(int tileX, int tileY, double fraction) {
+        x = approach(x, tileX - width / 2, fraction);
+        y = approach(y, tileY - height / 2, fraction);
+    }
+
+    /**
+     * Keeps the view inside a world of the given size. If the world is smaller than the view
+     * along an axis, the view stays at 0 on that axis.
+     * @param worldWidth width of the world in tiles
+     * @param worldHeight height of the world in tiles
+     */
+    public void clampTo(int worldWidth, int worldHeight) {
+        clampTo(0, 0, worldWidth, worldHeight);
+    }
+
+    /**
+     * Keeps the view inside part of the world, e.g. the part there is fog for. If the part is
+     * smaller than the view along an axis, the view stays at its left or bottom edge.
+     * @param left world x coordinate of the part's first column
+     * @param bottom world y coordinate of the part's first row
+     * @param right world x coordinate just past the part's last column
+     * @param top world y coordinate just past the part's last row
+     */
+    public void clampTo(int left, int bottom, int right, int top) {
+        x = Math.max(left, Math.min(x, right - width));
+        y = Math.max(bottom, Math.min(y, top - height));
+    }
+
+    /**
+     * Converts a position in the view, in tiles from its bottom left corner, to a world tile.
+     * @param viewX x position within the view, e.g. StdDraw.mouseX()
+     * @return the world x coordinate of the tile at that position
+     */
+    public int toWorldX(double viewX) {
+        return (int) Math.floor(x + viewX);
+    }
+
+    /**
+     * Converts a position in the view, in tiles from its bottom left corner, to a world tile.
+     * @param viewY y position within the view, e.g. StdDraw.mouseY()
+     * @return the world y coordinate of the tile at that position
+     */
+    public int toWorldY(double viewY) {
+        return (int) Math.floor(y + viewY);
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    // Helper Methods
+
+    private static double approach(double from, double to, double fraction) {
+        double next = from + (to - from) * fraction;
+        if (Math.abs(to - next) < 1.0 / 32) {
+            return to;
+        }
+        return next;
+    }
+}
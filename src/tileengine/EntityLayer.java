@@ -0,0 +1,250 @@
+package tileengine;
+
+import utils.Zobrist;
+
+import java.util.Arrays;
+
+/**
+ * Sparse layer of tiles that sit on top of the terrain, such as the avatar and coins. Only
+ * occupied cells are stored, so the layer costs nothing for the empty parts of a large world.
+ * At most one entity occupies a cell.
+ *
+ * Entities are kept in two primitive arrays, their cell indexes and their tile ids, with an
+ * open-addressing table from cell index to position in those arrays. Lookups, puts and
+ * removes are O(1), and copying a layer into another one of the same capacity is a few
+ * array copies that allocate nothing. Removing an entity moves the last one into its place,
+ * so entities are not visited in the order they were added.
+ *
+ * The layer keeps a Zobrist digest of its entities, updated with every change, so it can be
+ * compared with another layer in O(1).
+ */
+public class EntityLayer {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int width;
+    private final int height;
+
+    // Entity i is tile ids[i] at row-major cell cells[i], for i < size
+    private int[] cells = new int[INITIAL_CAPACITY];
+    private byte[] ids = new byte[INITIAL_CAPACITY];
+    private int size;
+
+    // Linear-probing table from cell index to entity position + 1, 0 for a free slot; kept at
+    // most half full
+    private int[] table = new int[2 * INITIAL_CAPACITY];
+    private long digest;
+
+    /**
+     * Visits one entity of the layer.
+     */
+    public interface EntityVisitor {
+        void visit(int x, int y, TETile tile);
+    }
+
+    /**
+     * Creates an empty layer over a world of the given size.
+     * @param width width of the world in tiles
+     * @param height height of the world in tiles
+     */
+    public EntityLayer(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Gets the entity in a cell.
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return the entity's tile, or null if the cell is empty or out of bounds
+     */
+    public TETile get(int x, int y) {
+        if (!inBounds(x, y)) {
+            return null;
+        }
+        int slot = table[find(y * width + x)];
+        return slot == 0 ? null : Tileset.byId(ids[slot - 1]);
+    }
+
+    /**
+     * Puts an entity in a cell, replacing whatever entity was there.
+     * @param x x coordinate
+     * @param y y coordinate
+     * @param tile the entity's tile, which must be in the Tileset
+     */
+    public void put(int x, int y, TETile tile) {
+        if (!inBounds(x, y)) {
+            throw new IllegalArgumentException("Entity position out of bounds: (" + x + ", " + y + ")");
+        }
+        if (tile == null) {
+            throw new IllegalArgumentException("Entity tile cannot be null");
+        }
+        if (Tileset.byId(tile.id()) == null) {
+            throw new IllegalArgumentException("Tile id " + tile.id() + " is not in the Tileset.");
+        }
+        int i = y * width + x;
+        int position = find(i);
+        int slot = table[position];
+        if (slot != 0) {
+            digest ^= key(i, Tileset.byId(ids[slot - 1]));
+            ids[slot - 1] = (byte) tile.id();
+        } else {
+            if (size == cells.length) {
+                grow();
+                position = find(i);
+            }
+            cells[size] = i;
+            ids[size] = (byte) tile.id();
+            size += 1;
+            table[position] = size;
+        }
+        digest ^= key(i, tile);
+    }
+
+    /**
+     * Removes the entity in a cell.
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return the removed tile, or null if the cell was empty
+     */
+    public TETile remove(int x, int y) {
+        if (!inBounds(x, y)) {
+            return null;
+        }
+        int i = y * width + x;
+        int position = find(i);
+        int slot = table[position];
+        if (slot == 0) {
+            return null;
+        }
+        TETile old = Tileset.byId(ids[slot - 1]);
+        digest ^= key(i, old);
+        deleteFromTable(position);
+
+        // Move the last entity into the freed place
+        int last = size - 1;
+        if (slot - 1 != last) {
+            table[find(cells[last])] = slot;
+            cells[slot - 1] = cells[last];
+            ids[slot - 1] = ids[last];
+        }
+        size = last;
+        return old;
+    }
+
+    /**
+     * Removes every entity.
+     */
+    public void clear() {
+        Arrays.fill(table, 0);
+        size = 0;
+        digest = 0;
+    }
+
+    /**
+     * Replaces the contents of this layer with those of another layer of the same size.
+     * Allocates nothing unless the other layer has grown larger than this one.
+     * @param other the layer to copy
+     */
+    public void copyFrom(EntityLayer other) {
+        if (other.width != width || other.height != height) {
+            throw new IllegalArgumentException("Entity layers must be the same size to copy");
+        }
+        if (cells.length != other.cells.length) {
+            cells = new int[other.cells.length];
+            ids = new byte[other.ids.length];
+            table = new int[other.table.length];
+        }
+        System.arraycopy(other.cells, 0, cells, 0, other.size);
+        System.arraycopy(other.ids, 0, ids, 0, other.size);
+        System.arraycopy(other.table, 0, table, 0, table.length);
+        size = other.size;
+        digest = other.digest;
+    }
+
+    /**
+     * Gets the XOR of key(i, tile) over every entity, so two layers holding the same entities
+     * have the same digest, whatever order they were added in.
+     * @return the digest, or 0 for an empty layer
+     */
+    public long digest() {
+        return digest;
+    }
+
+    /**
+     * Gets the Zobrist key of an entity in a cell.
+     * @param index row-major cell index, y * width + x
+     * @param tile the entity's tile
+     * @return the key
+     */
+    public static long key(int index, TETile tile) {
+        return Zobrist.key(tile.id(), index);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Calls the visitor for every entity, in no particular order.
+     * @param visitor the visitor
+     */
+    public void forEach(EntityVisitor visitor) {
+        for (int e = 0; e < size; e++) {
+            int i = cells[e];
+            visitor.visit(i % width, i / width, Tileset.byId(ids[e]));
+        }
+    }
+
+    // Helper Methods
+
+    // Position in the table holding the cell, or the free slot where it would go
+    private int find(int cell) {
+        int mask = table.length - 1;
+        int position = home(cell, mask);
+        while (table[position] != 0 && cells[table[position] - 1] != cell) {
+            position = (position + 1) & mask;
+        }
+        return position;
+    }
+
+    private static int home(int cell, int mask) {
+        int h = cell * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    // Frees a table slot, shifting back later entries of its probe run so lookups still
+    // find them
+    private void deleteFromTable(int position) {
+        int mask = table.length - 1;
+        int free = position;
+        int next = position;
+        while (true) {
+            next = (next + 1) & mask;
+            if (table[next] == 0) {
+                break;
+            }
+            int home = home(cells[table[next] - 1], mask);
+            // Entries whose home lies cyclically in (free, next] stay where they are
+            boolean stays = free <= next ? free < home && home <= next : free < home || home <= next;
+            if (!stays) {
+                table[free] = table[next];
+                free = next;
+            }
+        }
+        table[free] = 0;
+    }
+
+    // Doubles the capacity and rebuilds the table
+    private void grow() {
+        cells = Arrays.copyOf(cells, cells.length * 2);
+        ids = Arrays.copyOf(ids, ids.length * 2);
+        table = new int[cells.length * 2];
+        for (int e = 0; e < size; e++) {
+            table[find(cells[e])] = e + 1;
+        }
+    }
+
+    private boolean inBounds(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+}
@@ -0,0 +1,97 @@
+package tileengine;
+
+import java.awt.Color;
+import java.util.Random;
+
+/**
+ * Dimmed versions of the Tileset tiles, used to draw explored tiles that are not currently
+ * visible. Every variant is created once when the class loads, so drawing fog never allocates.
+ *
+ * Level 0 is the standard look: walls keep a slightly varied wall colour, floors and coins
+ * are drawn as dark floors, and anything else is hidden. Each higher level darkens those
+ * tiles further, until MAX_LEVEL draws remembered tiles as black.
+ */
+public class FogTiles {
+    public static final int MAX_LEVEL = 4;
+
+    private static final TETile DIMMED_WALL = TETile.colorVariant(Tileset.WALL, 30, 30, 30,
+            new Random(0));
+    private static final TETile DIMMED_FLOOR = new TETile(Tileset.FLOOR.character(),
+            new Color(40, 40, 40), Color.black, "dimmed floor", 2);
+
+    // DIMMED[level][id] is the dimmed version of the Tileset tile with that id
+    private static final TETile[][] DIMMED = buildLevels();
+
+    /**
+     * Returns how a tile looks when it has been explored but is not currently visible.
+     * @param tile the tile in the world
+     * @param level dimming level, from 0 to MAX_LEVEL
+     * @return the dimmed tile to draw
+     */
+    public static TETile dimmed(TETile tile, int level) {
+        checkLevel(level);
+        TETile[] levelTiles = DIMMED[level];
+        int id = tile.id();
+        if (id < 0 || id >= levelTiles.length || Tileset.byId(id) != tile) {
+            // Tiles outside the Tileset are hidden, like NOTHING
+            return levelTiles[Tileset.NOTHING.id()];
+        }
+        return levelTiles[id];
+    }
+
+    /**
+     * Throws if the level is not between 0 and MAX_LEVEL.
+     * @param level dimming level
+     */
+    public static void checkLevel(int level) {
+        if (level < 0 || level > MAX_LEVEL) {
+            throw new IllegalArgumentException("Fog level must be between 0 and " + MAX_LEVEL
+                    + ": " + level);
+        }
+    }
+
+    // Helper Methods
+
+    private static TETile[][] buildLevels() {
+        // Tile ids fit in a byte, see Tileset
+        int idCount = Byte.MAX_VALUE + 1;
+        TETile[][] levels = new TETile[MAX_LEVEL + 1][idCount];
+        for (int id = 0; id < idCount; id += 1) {
+            if (Tileset.byId(id) == null) {
+                continue;
+            }
+            TETile base = standardMemory(Tileset.byId(id));
+            for (int level = 0; level <= MAX_LEVEL; level += 1) {
+                levels[level][id] = level == 0 ? base : darken(base, MAX_LEVEL - level, MAX_LEVEL);
+            }
+        }
+        return levels;
+    }
+
+    private static TETile standardMemory(TETile tile) {
+        if (tile == Tileset.WALL) {
+            // Walls remain somewhat visible
+            return DIMMED_WALL;
+        } else if (tile == Tileset.FLOOR || tile == Tileset.COIN) {
+            // Both floors and coins render as dimmed floors when in explored but not visible areas
+            return DIMMED_FLOOR;
+        }
+        return Tileset.NOTHING;
+    }
+
+    private static TETile darken(TETile tile, int numerator, int denominator) {
+        if (tile == Tileset.NOTHING) {
+            return tile;
+        }
+        // Image tiles are drawn as their character, since the image cannot be darkened
+        return new TETile(tile.character(), scale(tile.textColor(), numerator, denominator),
+                scale(tile.backgroundColor(), numerator, denominator), tile.description(),
+                tile.id());
+    }
+
+    private static Color scale(Color c, int numerator, int denominator) {
+        return new Color(c.getRed() * numerator / denominator,
+                c.getGreen() * numerator / denominator,
+                c.getBlue() * numerator / denominator);
+    }
+}
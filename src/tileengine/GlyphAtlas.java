@@ -0,0 +1,193 @@
+package tileengine;
+
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * Sprite sheet of pre-rendered tiles. The first time a tile is drawn, its background square
+ * and character are rasterized into a free slot of the atlas image; after that, drawing the
+ * tile is a copy of that slot. Tiles are told apart by character, text color and background
+ * color (alpha is ignored), so equal-looking tiles share a slot.
+ *
+ * Slots are rasterized at the pixel scale of the target surface. The atlas starts over
+ * whenever the font or that scale changes.
+ */
+public class GlyphAtlas {
+    private static final int SLOTS_PER_ROW = 16;
+
+    private final int tileSize;
+    private Font font;
+    private double scale;
+    private int slotSize;
+    private BufferedImage image;
+    private int slotCount;
+    private int generation;
+
+    // Open-addressing map from tile key to slot index; a slot of -1 marks an empty entry
+    private long[] keys;
+    private int[] slots;
+
+    /**
+     * Creates an empty atlas.
+     * @param tileSize size of one tile in (unscaled) pixels
+     */
+    public GlyphAtlas(int tileSize) {
+        this.tileSize = tileSize;
+    }
+
+    /**
+     * Makes sure the atlas matches the given font and pixel scale, discarding every slot if
+     * either changed.
+     * @param font font used for tile characters
+     * @param scale device pixels per drawing unit of the target surface
+     */
+    public void prepare(Font font, double scale) {
+        if (font.equals(this.font) && scale == this.scale && image != null) {
+            return;
+        }
+        this.font = font;
+        this.scale = scale;
+        this.slotSize = Math.max(1, (int) Math.ceil(tileSize * scale));
+        this.image = new BufferedImage(SLOTS_PER_ROW * slotSize, slotSize, BufferedImage.TYPE_INT_ARGB);
+        this.slotCount = 0;
+        this.generation += 1;
+        this.keys = new long[64];
+        this.slots = new int[64];
+        Arrays.fill(slots, -1);
+    }
+
+    /**
+     * Copies a tile from the atlas onto a surface, rasterizing it first if needed.
+     * Tiles drawn from image files are not handled here.
+     * @param g the surface to draw on
+     * @param tile the tile to draw
+     * @param x left edge of the tile on the surface
+     * @param y top edge of the tile on the surface
+     * @return false if the tile uses an image file and must be drawn another way
+     */
+    public boolean draw(Graphics2D g, TETile tile, int x, int y) {
+        if (tile.filepath() != null || image == null) {
+            return false;
+        }
+        int slot = slotFor(tile);
+        int sx = (slot % SLOTS_PER_ROW) * slotSize;
+        int sy = (slot / SLOTS_PER_ROW) * slotSize;
+        g.drawImage(image, x, y, x + tileSize, y + tileSize, sx, sy, sx + slotSize, sy + slotSize, null);
+        return true;
+    }
+
+    /**
+     * Number of distinct tiles rasterized since the atlas was last reset.
+     * @return the slot count
+     */
+    public int size() {
+        return slotCount;
+    }
+
+    public int tileSize() {
+        return tileSize;
+    }
+
+    /**
+     * Size of one slot in device pixels, i.e. the tile size times the pixel scale.
+     * @return the slot size
+     */
+    public int slotSize() {
+        return slotSize;
+    }
+
+    /**
+     * Counts how many times the atlas has been reset, so that images built from its tiles can
+     * tell when they are out of date.
+     * @return the number of resets
+     */
+    public int generation() {
+        return generation;
+    }
+
+    // Helper Methods
+
+    private int slotFor(TETile tile) {
+        long key = key(tile);
+        int mask = keys.length - 1;
+        int i = Long.hashCode(key * 0x9E3779B97F4A7C15L) & mask;
+        while (slots[i] != -1) {
+            if (keys[i] == key) {
+                return slots[i];
+            }
+            i = (i + 1) & mask;
+        }
+        int slot = rasterize(tile);
+        keys[i] = key;
+        slots[i] = slot;
+        if (slotCount * 2 > keys.length) {
+            rehash();
+        }
+        return slot;
+    }
+
+    private int rasterize(TETile tile) {
+        int slot = slotCount++;
+        int rows = image.getHeight() / slotSize;
+        if (slot >= rows * SLOTS_PER_ROW) {
+            BufferedImage bigger = new BufferedImage(image.getWidth(), image.getHeight() * 2,
+                    BufferedImage.TYPE_INT_ARGB);
+            Graphics2D copy = bigger.createGraphics();
+            copy.drawImage(image, 0, 0, null);
+            copy.dispose();
+            image = bigger;
+        }
+
+        int x = (slot % SLOTS_PER_ROW) * slotSize;
+        int y = (slot / SLOTS_PER_ROW) * slotSize;
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.translate(x, y);
+        g.scale(scale, scale);
+
+        // Same layout as StdDraw: filled square, then the character centered on its baseline
+        g.setColor(tile.backgroundColor());
+        g.fillRect(0, 0, tileSize, tileSize);
+        g.setColor(tile.textColor());
+        g.setFont(font);
+        FontMetrics metrics = g.getFontMetrics();
+        String text = Character.toString(tile.character());
+        float textX = (float) (tileSize / 2.0 - metrics.stringWidth(text) / 2.0);
+        float textY = (float) (tileSize / 2.0 + metrics.getDescent());
+        g.drawString(text, textX, textY);
+        g.dispose();
+        return slot;
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        int[] oldSlots = slots;
+        keys = new long[oldKeys.length * 2];
+        slots = new int[oldSlots.length * 2];
+        Arrays.fill(slots, -1);
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldSlots[j] == -1) {
+                continue;
+            }
+            int i = Long.hashCode(oldKeys[j] * 0x9E3779B97F4A7C15L) & mask;
+            while (slots[i] != -1) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = oldKeys[j];
+            slots[i] = oldSlots[j];
+        }
+    }
+
+    // Character in the top 16 bits, then text and background RGB
+    private static long key(TETile tile) {
+        return ((long) tile.character() << 48)
+                | ((long) (tile.textColor().getRGB() & 0xFFFFFF) << 24)
+                | (tile.backgroundColor().getRGB() & 0xFFFFFF);
+    }
+}
@@ -0,0 +1,136 @@
+package tileengine;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Draws to an off-screen image, without a display. The image can be read after each frame or
+ * saved as a PNG. There is no pointer.
+ */
+public class ImageBackend implements RenderBackend {
+    private int height;
+    private int tileSize;
+    private BufferedImage image;
+    private Graphics2D graphics;
+    private int frameCount;
+
+    @Override
+    public void open(int width, int height, int tileSize) {
+        if (graphics != null) {
+            graphics.dispose();
+        }
+        this.height = height;
+        this.tileSize = tileSize;
+        this.image = new BufferedImage(width * tileSize, height * tileSize, BufferedImage.TYPE_INT_RGB);
+        this.graphics = image.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
+                RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        clear(Color.black);
+    }
+
+    @Override
+    public Graphics2D surface() {
+        return graphics;
+    }
+
+    @Override
+    public void clear(Color color) {
+        checkOpen();
+        graphics.setColor(color);
+        graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+    }
+
+    // Only reached for tiles drawn from image files, which are drawn as their character here
+    @Override
+    public void drawTile(TETile tile, double x, double y, Font font) {
+        checkOpen();
+        int left = (int) Math.round(x * tileSize);
+        int top = (int) Math.round((height - 1 - y) * tileSize);
+        graphics.setColor(tile.backgroundColor());
+        graphics.fillRect(left, top, tileSize, tileSize);
+        drawString(Character.toString(tile.character()), left + tileSize / 2.0,
+                top + tileSize / 2.0, font, tile.textColor(), Align.CENTER);
+    }
+
+    @Override
+    public void text(double x, double y, String text, Font font, Color color, Align align) {
+        checkOpen();
+        drawString(text, x * tileSize, (height - y) * tileSize, font, color, align);
+    }
+
+    @Override
+    public void show() {
+        frameCount += 1;
+    }
+
+    @Override
+    public double mouseX() {
+        return -1;
+    }
+
+    @Override
+    public double mouseY() {
+        return -1;
+    }
+
+    /**
+     * Gets the image drawn so far. It is drawn into in place, so copy it to keep a frame.
+     * @return the image
+     */
+    public BufferedImage getImage() {
+        checkOpen();
+        return image;
+    }
+
+    /**
+     * Number of frames shown since the backend was created.
+     * @return the frame count
+     */
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Saves the image as a PNG file.
+     * @param file where to save it
+     * @throws IOException if the file cannot be written
+     */
+    public void writePng(File file) throws IOException {
+        checkOpen();
+        if (!ImageIO.write(image, "png", file)) {
+            throw new IOException("No PNG writer available");
+        }
+    }
+
+    // Helper Methods
+
+    private void checkOpen() {
+        if (image == null) {
+            throw new IllegalStateException("ImageBackend has not been opened");
+        }
+    }
+
+    // Same placement as StdDraw: vertically centered on y using the font's descent
+    private void drawString(String text, double pixelX, double pixelY, Font font, Color color,
+                            Align align) {
+        graphics.setFont(font);
+        graphics.setColor(color);
+        FontMetrics metrics = graphics.getFontMetrics();
+        double textWidth = metrics.stringWidth(text);
+        double left = pixelX;
+        if (align == Align.CENTER) {
+            left -= textWidth / 2;
+        } else if (align == Align.RIGHT) {
+            left -= textWidth;
+        }
+        graphics.drawString(text, (float) left, (float) (pixelY + metrics.getDescent()));
+    }
+}
@@ -0,0 +1,14 @@
+package tileengine;
+
+/**
+ * Something drawn over the tiles, such as a HUD. TERenderer draws its overlay after the
+ * tiles and before showing the frame, so each frame is shown once with the overlay on it.
+ */
+public interface Overlay {
+
+    /**
+     * Draws the overlay over the tiles of the current frame.
+     * @param backend where the frame is being drawn
+     */
+    void draw(RenderBackend backend);
+}
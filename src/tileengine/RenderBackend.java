@@ -0,0 +1,76 @@
+package tileengine;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+
+/**
+ * Where TERenderer and the HUD draw. Positions are in tiles, with (0, 0) at the bottom left
+ * of the window, like StdDraw after TERenderer.initialize.
+ *
+ * StdDrawBackend draws to the StdDraw window, ImageBackend to an off-screen image that can be
+ * saved as a PNG, and AsciiBackend to text. The last two need no display.
+ */
+public interface RenderBackend {
+
+    /** How text is placed relative to its x position. */
+    enum Align { LEFT, CENTER, RIGHT }
+
+    /**
+     * Sets up a surface of the given size in tiles and clears it to black.
+     * @param width width in tiles
+     * @param height height in tiles
+     * @param tileSize size of one tile in pixels
+     */
+    void open(int width, int height, int tileSize);
+
+    /**
+     * Gets a surface that tiles can be copied onto directly, in pixels with (0, 0) at the top
+     * left. TERenderer uses it to copy pre-rendered tiles.
+     * @return the surface, or null if tiles must be drawn with drawTile
+     */
+    Graphics2D surface();
+
+    /**
+     * Fills the whole surface with a color.
+     * @param color the color
+     */
+    void clear(Color color);
+
+    /**
+     * Draws one tile with its bottom left corner at (x, y).
+     * @param tile the tile
+     * @param x x position in tiles
+     * @param y y position in tiles
+     * @param font font for the tile's character
+     */
+    void drawTile(TETile tile, double x, double y, Font font);
+
+    /**
+     * Draws a line of text, vertically centered on y.
+     * @param x x position in tiles
+     * @param y y position in tiles
+     * @param text the text
+     * @param font the font
+     * @param color the text color
+     * @param align which end of the text x is
+     */
+    void text(double x, double y, String text, Font font, Color color, Align align);
+
+    /**
+     * Shows everything drawn since the last call.
+     */
+    void show();
+
+    /**
+     * Gets the pointer's x position.
+     * @return the x position in tiles, or a negative number if there is no pointer
+     */
+    double mouseX();
+
+    /**
+     * Gets the pointer's y position.
+     * @return the y position in tiles, or a negative number if there is no pointer
+     */
+    double mouseY();
+}
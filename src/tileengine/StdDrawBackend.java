@@ -0,0 +1,74 @@
+package tileengine;
+
+import edu.princeton.cs.algs4.StdDraw;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+
+/**
+ * Draws to the StdDraw window. Needs a display.
+ *
+ * Only StdDraw's public API is used, so there is no surface: tiles are drawn one at a time
+ * with TETile.draw, and TERenderer only repaints the cells that changed. The glyph atlas and
+ * pre-rendered terrain pages are used by backends with a surface, such as ImageBackend.
+ */
+public class StdDrawBackend implements RenderBackend {
+
+    @Override
+    public void open(int width, int height, int tileSize) {
+        StdDraw.setCanvasSize(width * tileSize, height * tileSize);
+        StdDraw.setXscale(0, width);
+        StdDraw.setYscale(0, height);
+
+        StdDraw.clear(new Color(0, 0, 0));
+
+        StdDraw.enableDoubleBuffering();
+        StdDraw.show();
+    }
+
+    @Override
+    public Graphics2D surface() {
+        // StdDraw does not expose its off-screen image
+        return null;
+    }
+
+    @Override
+    public void clear(Color color) {
+        StdDraw.clear(color);
+    }
+
+    @Override
+    public void drawTile(TETile tile, double x, double y, Font font) {
+        StdDraw.setFont(font);
+        tile.draw(x, y);
+    }
+
+    @Override
+    public void text(double x, double y, String text, Font font, Color color, Align align) {
+        StdDraw.setPenColor(color);
+        StdDraw.setFont(font);
+        if (align == Align.LEFT) {
+            StdDraw.textLeft(x, y, text);
+        } else if (align == Align.RIGHT) {
+            StdDraw.textRight(x, y, text);
+        } else {
+            StdDraw.text(x, y, text);
+        }
+    }
+
+    @Override
+    public void show() {
+        StdDraw.show();
+    }
+
+    @Override
+    public double mouseX() {
+        return StdDraw.mouseX();
+    }
+
+    @Override
+    public double mouseY() {
+        return StdDraw.mouseY();
+    }
+}
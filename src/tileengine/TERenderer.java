@@ -1,10 +1,9 @@
 package tileengine;
 
-import edu.princeton.cs.algs4.StdDraw;
-
 import java.awt.Color;
 import java.awt.Font;
-import java.util.Random;
+import java.awt.Graphics2D;
+import java.util.Arrays;
 
 /**
  * Utility class for rendering tiles. You do not need to modify this file. You're welcome
@@ -14,11 +13,68 @@ import java.util.Random;
  */
 public class TERenderer {
     private static final int TILE_SIZE = 16;
+    private final RenderBackend backend;
     private int width;
     private int height;
     private int xOffset;
     private int yOffset;
 
+    // What is currently drawn in each window cell, so that frames only repaint cells that
+    // changed. A null tile means the cell must be repainted.
+    private static final byte FOG_VISIBLE = 0;
+    private static final byte FOG_EXPLORED = 1;
+    private static final byte FOG_UNEXPLORED = 2;
+    private TETile[] frontTiles;
+    private byte[] frontFog;
+    private boolean fullRepaint = true;
+    private int lastWorldWidth = -1;
+    private int lastWorldHeight = -1;
+    private int fogLevel = 0;
+
+    // How far tiles are shifted left and down on screen, in pixels, when a camera is between tiles
+    private int subPixelX;
+    private int subPixelY;
+    private int viewOriginX;
+    private int viewOriginY;
+
+    // Tiles are copied out of a pre-rendered atlas straight into the backend's surface,
+    // instead of being drawn as a square plus text each time
+    private final GlyphAtlas atlas = new GlyphAtlas(TILE_SIZE);
+    private Font tileFont;
+    private Graphics2D frameGraphics;
+
+    // Drawn over the tiles of every frame before it is shown
+    private Overlay overlay;
+
+    /**
+     * Creates a renderer that draws to the StdDraw window.
+     */
+    public TERenderer() {
+        this(new StdDrawBackend());
+    }
+
+    /**
+     * Creates a renderer that draws to the given backend, e.g. an ImageBackend or AsciiBackend
+     * to render without a display.
+     * @param backend where to draw
+     */
+    public TERenderer(RenderBackend backend) {
+        this.backend = backend;
+    }
+
+    public RenderBackend getBackend() {
+        return backend;
+    }
+
+    /**
+     * Sets what is drawn over the tiles of every frame, such as a HUD, so that the tiles and
+     * the overlay are shown together.
+     * @param overlay the overlay, or null for none
+     */
+    public void setOverlay(Overlay overlay) {
+        this.overlay = overlay;
+    }
+
     /**
      * Same functionality as the other initialization method. The only difference is that the xOff
      * and yOff parameters will change where the renderFrame method starts drawing. For example,
@@ -33,19 +89,59 @@ public class TERenderer {
         this.height = h;
         this.xOffset = xOff;
         this.yOffset = yOff;
-        StdDraw.setCanvasSize(width * TILE_SIZE, height * TILE_SIZE);
+        backend.open(width, height, TILE_SIZE);
         resetFont();
-        StdDraw.setXscale(0, width);
-        StdDraw.setYscale(0, height);
 
-        StdDraw.clear(new Color(0, 0, 0));
+        this.frontTiles = new TETile[width * height];
+        this.frontFog = new byte[width * height];
+        invalidate();
+    }
+
+    /**
+     * Forces the next frame to clear the canvas and repaint every tile. Call this after
+     * drawing over the canvas with something other than this renderer.
+     */
+    public void invalidate() {
+        fullRepaint = true;
+    }
 
-        StdDraw.enableDoubleBuffering();
-        StdDraw.show();
+    /**
+     * Forces the next frame to repaint the tiles in a rectangle of the window, e.g. where a HUD
+     * was drawn over the tiles.
+     * @param x left edge of the rectangle, in window tiles
+     * @param y bottom edge of the rectangle, in window tiles
+     * @param w width of the rectangle in tiles
+     * @param h height of the rectangle in tiles
+     */
+    public void invalidateRegion(int x, int y, int w, int h) {
+        if (frontTiles == null) {
+            return;
+        }
+        for (int cy = Math.max(0, y); cy < Math.min(height, y + h); cy += 1) {
+            for (int cx = Math.max(0, x); cx < Math.min(width, x + w); cx += 1) {
+                frontTiles[cy * width + cx] = null;
+            }
+        }
     }
 
     /**
-     * Initializes StdDraw parameters and launches the StdDraw window. w and h are the
+     * Sets how dark explored tiles that are not currently visible are drawn. See FogTiles.
+     * @param level dimming level, from 0 (standard) to FogTiles.MAX_LEVEL (black)
+     */
+    public void setFogLevel(int level) {
+        FogTiles.checkLevel(level);
+        if (level != fogLevel) {
+            fogLevel = level;
+            invalidate();
+        }
+    }
+
+    public int getFogLevel() {
+        return fogLevel;
+    }
+
+    /**
+     * Sets up the backend; for StdDraw, this launches the StdDraw window. w and h are the
      * width and height of the world in number of tiles. If the TETile[][] array that you
      * pass to renderFrame is smaller than this, then extra blank space will be left
      * on the right and top edges of the frame. For example, if you select w = 60 and
@@ -81,16 +177,30 @@ public class TERenderer {
      * This method assumes that the xScale and yScale have been set such that the max x
      * value is the width of the screen in tiles, and the max y value is the height of
      * the screen in tiles.
+     *
+     * Only tiles that differ from the previous frame are repainted, unless the window was
+     * invalidated or the world size changed.
      * @param world the 2D TETile[][] array to render
      */
     public void renderFrame(TETile[][] world) {
-        StdDraw.clear(new Color(0, 0, 0));
+        beginFrame(world.length, world[0].length, 0, 0);
+        drawTiles(world);
+        present();
+    }
+
+    /**
+     * Same as renderFrame(TETile[][]), but reads the tiles from a TileGrid.
+     * @param world the TileGrid to render
+     */
+    public void renderFrame(TileGrid world) {
+        beginFrame(world.width(), world.height(), 0, 0);
         drawTiles(world);
-        StdDraw.show();
+        present();
     }
 
     /**
-     * Renders the frame with line of sight visibility.
+     * Renders the frame with line of sight visibility. Only tiles whose tile or visibility
+     * changed since the previous frame are repainted.
      * @param world the 2D TETile[][] array to render
      * @param visibility visibility grid (true = visible)
      * @param explored explored grid (true = has been seen before)
@@ -98,10 +208,9 @@ public class TERenderer {
      */
     public void renderFrameWithFog(TETile[][] world, boolean[][] visibility, 
                                  boolean[][] explored, boolean losEnabled) {
-        StdDraw.clear(new Color(0, 0, 0));
-        
         int numXTiles = world.length;
         int numYTiles = world[0].length;
+        beginFrame(numXTiles, numYTiles, 0, 0);
         
         for (int x = 0; x < numXTiles; x += 1) {
             for (int y = 0; y < numYTiles; y += 1) {
@@ -109,41 +218,119 @@ public class TERenderer {
                     throw new IllegalArgumentException("Tile at position x=" + x + ", y=" + y
                             + " is null.");
                 }
-                
-                if (!losEnabled || visibility[x][y]) {
-                    // Fully visible tile
-                    world[x][y].draw(x + xOffset, y + yOffset);
-                } else if (explored[x][y]) {
-                    // Explored but not currently visible - draw dimmed version
-                    if (world[x][y] == Tileset.WALL) {
-                        // Walls remain somewhat visible
-                        TETile dimmedWall = TETile.colorVariant(Tileset.WALL, 30, 30, 30, new Random(0));
-                        dimmedWall.draw(x + xOffset, y + yOffset);
-                    } else if (world[x][y] == Tileset.FLOOR || world[x][y] == Tileset.COIN) {
-                        // Both floors and coins render as dimmed floors when in explored but not visible areas
-                        TETile dimmedFloor = new TETile(Tileset.FLOOR.character(), 
-                                                     new Color(40, 40, 40), 
-                                                     Color.black, "dimmed floor", 2);
-                        dimmedFloor.draw(x + xOffset, y + yOffset);
-                    } else {
-                        // Other tiles
-                        Tileset.NOTHING.draw(x + xOffset, y + yOffset);
-                    }
-                } else {
-                    // Unexplored - draw nothing (black)
-                    Tileset.NOTHING.draw(x + xOffset, y + yOffset);
-                }
+                drawCell(world[x][y], x + xOffset, y + yOffset, fogAt(x, y, visibility, explored, losEnabled));
             }
         }
         
-        StdDraw.show();
+        present();
+    }
+
+    /**
+     * Same as renderFrameWithFog(TETile[][], ...), but reads the tiles from a TileGrid.
+     * @param world the TileGrid to render
+     * @param visibility visibility grid (true = visible)
+     * @param explored explored grid (true = has been seen before)
+     * @param losEnabled whether line of sight is enabled
+     */
+    public void renderFrameWithFog(TileGrid world, boolean[][] visibility,
+                                   boolean[][] explored, boolean losEnabled) {
+        beginFrame(world.width(), world.height(), 0, 0);
+
+        for (int y = 0; y < world.height(); y += 1) {
+            for (int x = 0; x < world.width(); x += 1) {
+                drawCell(world.get(x, y), x + xOffset, y + yOffset, fogAt(x, y, visibility, explored, losEnabled));
+            }
+        }
+
+        present();
+    }
+
+    /**
+     * Renders only the part of the world inside the camera's view, so the cost of a frame
+     * depends on the size of the window rather than the size of the world. The view is drawn
+     * starting from xOffset and yOffset, and the area outside the world is drawn as NOTHING.
+     * If the camera is between tiles, the tiles are shifted by the fraction of a tile so that
+     * the view scrolls smoothly; such frames repaint every tile in the view.
+     * @param world the TileGrid to render
+     * @param camera the part of the world to show
+     */
+    public void renderFrame(TileGrid world, Camera camera) {
+        renderView(world, null, null, false, camera);
+    }
+
+    /**
+     * Same as renderFrame(TileGrid, Camera), but with line of sight visibility.
+     * @param world the TileGrid to render
+     * @param visibility visibility grid (true = visible)
+     * @param explored explored grid (true = has been seen before)
+     * @param losEnabled whether line of sight is enabled
+     * @param camera the part of the world to show
+     */
+    public void renderFrameWithFog(TileGrid world, boolean[][] visibility,
+                                   boolean[][] explored, boolean losEnabled, Camera camera) {
+        renderView(world, visibility, explored, losEnabled, camera);
+    }
+
+    /**
+     * Renders a world kept as two layers: terrain that does not change, and a few entities on
+     * top of it. The view is drawn starting from xOffset and yOffset, and like the other
+     * renderFrame methods only the cells whose tile changed since the previous frame are
+     * repainted: changed terrain is copied from the layer's pre-rendered pages in runs along
+     * each row, and changed entities are drawn one by one.
+     * @param terrain the terrain layer
+     * @param entities the entities, such as the avatar and coins
+     * @param camera the part of the world to show
+     */
+    public void renderFrame(TerrainLayer terrain, EntityLayer entities, Camera camera) {
+        renderLayers(terrain, entities, null, null, 0, 0, false, camera);
+    }
+
+    /**
+     * Same as renderFrame(TerrainLayer, EntityLayer, Camera), but with line of sight
+     * visibility. Terrain is copied in runs of changed tiles with the same visibility, and
+     * entities are only drawn where they are visible.
+     * @param terrain the terrain layer
+     * @param entities the entities, such as the avatar and coins
+     * @param visibility visibility grid (true = visible)
+     * @param explored explored grid (true = has been seen before)
+     * @param losEnabled whether line of sight is enabled
+     * @param camera the part of the world to show
+     */
+    public void renderFrameWithFog(TerrainLayer terrain, EntityLayer entities,
+                                   boolean[][] visibility, boolean[][] explored,
+                                   boolean losEnabled, Camera camera) {
+        renderLayers(terrain, entities, visibility, explored, 0, 0, losEnabled, camera);
+    }
+
+    /**
+     * Same as renderFrameWithFog(TerrainLayer, EntityLayer, boolean[][], boolean[][], boolean,
+     * Camera), but with fog grids that only cover part of the world, e.g. a window around the
+     * view. Tiles outside the grids are drawn as unexplored.
+     * @param terrain the terrain layer
+     * @param entities the entities, such as the avatar and coins
+     * @param visibility visibility grid (true = visible), indexed from fogX, fogY
+     * @param explored explored grid (true = has been seen before), indexed from fogX, fogY
+     * @param fogX world x coordinate of the grids' first column
+     * @param fogY world y coordinate of the grids' first row
+     * @param losEnabled whether line of sight is enabled
+     * @param camera the part of the world to show
+     */
+    public void renderFrameWithFog(TerrainLayer terrain, EntityLayer entities,
+                                   boolean[][] visibility, boolean[][] explored,
+                                   int fogX, int fogY, boolean losEnabled, Camera camera) {
+        renderLayers(terrain, entities, visibility, explored, fogX, fogY, losEnabled, camera);
     }
 
     /**
-     * Draws all world tiles without clearing the canvas or showing the tiles.
+     * Draws all world tiles without clearing the canvas or showing the tiles. Tiles the window
+     * already shows from an earlier frame are skipped, so call invalidate() first if the canvas
+     * was cleared or drawn over elsewhere.
      * @param world the 2D TETile[][] array to render
      */
     public void drawTiles(TETile[][] world) {
+        if (setSubPixelOffset(0, 0) && frontTiles != null) {
+            Arrays.fill(frontTiles, null);
+        }
         int numXTiles = world.length;
         int numYTiles = world[0].length;
         for (int x = 0; x < numXTiles; x += 1) {
@@ -152,17 +339,290 @@ public class TERenderer {
                     throw new IllegalArgumentException("Tile at position x=" + x + ", y=" + y
                             + " is null.");
                 }
-                world[x][y].draw(x + xOffset, y + yOffset);
+                drawCell(world[x][y], x + xOffset, y + yOffset, FOG_VISIBLE);
             }
         }
     }
 
     /**
-     * Resets the font to default settings. You should call this method before drawing any tiles
-     * if you changed the pen settings.
+     * Draws all tiles of a TileGrid without clearing the canvas or showing the tiles. Like
+     * drawTiles(TETile[][]), tiles the window already shows are skipped.
+     * @param world the TileGrid to render
+     */
+    public void drawTiles(TileGrid world) {
+        if (setSubPixelOffset(0, 0) && frontTiles != null) {
+            Arrays.fill(frontTiles, null);
+        }
+        for (int y = 0; y < world.height(); y += 1) {
+            for (int x = 0; x < world.width(); x += 1) {
+                drawCell(world.get(x, y), x + xOffset, y + yOffset, FOG_VISIBLE);
+            }
+        }
+    }
+
+    private void renderView(TileGrid world, boolean[][] visibility, boolean[][] explored,
+                            boolean losEnabled, Camera camera) {
+        beginView(world, camera);
+
+        // A camera between tiles also shows part of one more column and row
+        int columns = viewColumns(camera);
+        int rows = viewRows(camera);
+        for (int viewY = 0; viewY < rows; viewY += 1) {
+            int y = viewOriginY + viewY;
+            for (int viewX = 0; viewX < columns; viewX += 1) {
+                int x = viewOriginX + viewX;
+                if (world.inBounds(x, y)) {
+                    drawCell(world.get(x, y), viewX + xOffset, viewY + yOffset,
+                            fogAt(x, y, visibility, explored, losEnabled));
+                } else {
+                    drawCell(Tileset.NOTHING, viewX + xOffset, viewY + yOffset, FOG_VISIBLE);
+                }
+            }
+        }
+
+        present();
+    }
+
+    private void renderLayers(TerrainLayer terrain, EntityLayer entities, boolean[][] visibility,
+                              boolean[][] explored, int fogX, int fogY, boolean losEnabled,
+                              Camera camera) {
+        TileGrid world = terrain.terrain();
+        beginView(world, camera);
+        if (frameGraphics == null) {
+            // Without an off-screen image to copy into, draw the cells one by one
+            drawLayerCells(world, entities, visibility, explored, fogX, fogY, losEnabled,
+                    camera);
+            present();
+            return;
+        }
+
+        int columns = viewColumns(camera);
+        int rows = viewRows(camera);
+        for (int viewY = 0; viewY < rows; viewY += 1) {
+            int y = viewOriginY + viewY;
+            int screenY = viewY + yOffset;
+            // Changed terrain cells are collected into runs of the same fog, which end at
+            // cells that did not change or show an entity
+            int runStart = 0;
+            byte runFog = -1;
+            for (int viewX = 0; viewX <= columns; viewX += 1) {
+                byte paint = -1;
+                if (viewX < columns) {
+                    int x = viewOriginX + viewX;
+                    int screenX = viewX + xOffset;
+                    if (world.inBounds(x, y)) {
+                        // Entities are only seen where the terrain is visible
+                        byte fog = fogAt(x - fogX, y - fogY, visibility, explored, losEnabled);
+                        TETile entity = fog == FOG_VISIBLE ? entities.get(x, y) : null;
+                        if (entity != null) {
+                            if (updateFront(entity, screenX, screenY, fog)) {
+                                drawTile(entity, screenX, screenY);
+                            }
+                        } else if (updateFront(world.get(x, y), screenX, screenY, fog)) {
+                            paint = fog;
+                        }
+                    } else if (updateFront(Tileset.NOTHING, screenX, screenY, FOG_VISIBLE)) {
+                        // Outside the world is black, like unexplored terrain
+                        paint = FOG_UNEXPLORED;
+                    }
+                }
+                if (paint != runFog) {
+                    if (runFog >= 0) {
+                        drawTerrainRun(terrain, runFog, viewOriginX + runStart,
+                                viewOriginX + viewX, y);
+                    }
+                    runStart = viewX;
+                    runFog = paint;
+                }
+            }
+        }
+
+        present();
+    }
+
+    // Draws the overlay, then shows the frame
+    private void present() {
+        if (overlay != null) {
+            overlay.draw(backend);
+        }
+        backend.show();
+    }
+
+    private void drawTerrainRun(TerrainLayer terrain, byte fog, int x0, int x1, int y) {
+        if (fog == FOG_UNEXPLORED) {
+            frameGraphics.setColor(Color.black);
+            frameGraphics.fillRect(pixelLeft(x0), pixelTop(y), (x1 - x0) * TILE_SIZE, TILE_SIZE);
+            return;
+        }
+        int level = fog == FOG_VISIBLE ? TerrainLayer.VISIBLE : fogLevel;
+        terrain.draw(frameGraphics, atlas, level, x0, y, x1, y + 1, pixelLeft(x0), pixelTop(y));
+    }
+
+    private void drawLayerCells(TileGrid world, EntityLayer entities, boolean[][] visibility,
+                                boolean[][] explored, int fogX, int fogY,
+                                boolean losEnabled, Camera camera) {
+        int columns = viewColumns(camera);
+        int rows = viewRows(camera);
+        for (int viewY = 0; viewY < rows; viewY += 1) {
+            int y = viewOriginY + viewY;
+            for (int viewX = 0; viewX < columns; viewX += 1) {
+                int x = viewOriginX + viewX;
+                if (world.inBounds(x, y)) {
+                    TETile entity = entities.get(x, y);
+                    drawCell(entity != null ? entity : world.get(x, y), viewX + xOffset,
+                            viewY + yOffset,
+                            fogAt(x - fogX, y - fogY, visibility, explored, losEnabled));
+                } else {
+                    drawCell(Tileset.NOTHING, viewX + xOffset, viewY + yOffset, FOG_VISIBLE);
+                }
+            }
+        }
+    }
+
+    // Works out which tile is at the bottom left of the view and how far the view is shifted
+    // between tiles, then starts the frame
+    private void beginView(TileGrid world, Camera camera) {
+        int originX = (int) Math.floor(camera.getX());
+        int originY = (int) Math.floor(camera.getY());
+        int shiftX = (int) Math.round((camera.getX() - originX) * TILE_SIZE);
+        int shiftY = (int) Math.round((camera.getY() - originY) * TILE_SIZE);
+        if (shiftX == TILE_SIZE) {
+            originX += 1;
+            shiftX = 0;
+        }
+        if (shiftY == TILE_SIZE) {
+            originY += 1;
+            shiftY = 0;
+        }
+        viewOriginX = originX;
+        viewOriginY = originY;
+        beginFrame(world.width(), world.height(), shiftX, shiftY);
+    }
+
+    private int viewColumns(Camera camera) {
+        return camera.width() + (subPixelX > 0 ? 1 : 0);
+    }
+
+    private int viewRows(Camera camera) {
+        return camera.height() + (subPixelY > 0 ? 1 : 0);
+    }
+
+    // Left edge on screen, in pixels, of world column x in the current view
+    private int pixelLeft(int x) {
+        return (x - viewOriginX + xOffset) * TILE_SIZE - subPixelX;
+    }
+
+    // Top edge on screen, in pixels, of world row y in the current view
+    private int pixelTop(int y) {
+        return (height - 1 - (y - viewOriginY + yOffset)) * TILE_SIZE + subPixelY;
+    }
+
+    // Clears the canvas if a full repaint is due
+    private void beginFrame(int worldWidth, int worldHeight, int shiftX, int shiftY) {
+        if (frontTiles == null || frontTiles.length != width * height) {
+            frontTiles = new TETile[width * height];
+            frontFog = new byte[width * height];
+            fullRepaint = true;
+        }
+        if (worldWidth != lastWorldWidth || worldHeight != lastWorldHeight) {
+            lastWorldWidth = worldWidth;
+            lastWorldHeight = worldHeight;
+            fullRepaint = true;
+        }
+        if (setSubPixelOffset(shiftX, shiftY)) {
+            fullRepaint = true;
+        }
+        if (fullRepaint) {
+            backend.clear(new Color(0, 0, 0));
+            Arrays.fill(frontTiles, null);
+            fullRepaint = false;
+        }
+
+        resetFont();
+        frameGraphics = backend.surface();
+        if (frameGraphics != null) {
+            atlas.prepare(tileFont, frameGraphics.getTransform().getScaleX());
+        }
+    }
+
+    // Returns true if the offset changed, which moves every tile already on screen
+    private boolean setSubPixelOffset(int shiftX, int shiftY) {
+        if (shiftX == subPixelX && shiftY == subPixelY) {
+            return false;
+        }
+        subPixelX = shiftX;
+        subPixelY = shiftY;
+        return true;
+    }
+
+    private static byte fogAt(int x, int y, boolean[][] visibility, boolean[][] explored,
+                              boolean losEnabled) {
+        if (!losEnabled) {
+            return FOG_VISIBLE;
+        }
+        // The grids may only cover part of the world; the rest has not been seen
+        if (x < 0 || y < 0 || x >= visibility.length || y >= visibility[x].length) {
+            return FOG_UNEXPLORED;
+        }
+        if (visibility[x][y]) {
+            return FOG_VISIBLE;
+        }
+        return explored[x][y] ? FOG_EXPLORED : FOG_UNEXPLORED;
+    }
+
+    // Paints a tile at a window cell unless the window already shows it with the same fog
+    private void drawCell(TETile tile, int screenX, int screenY, byte fog) {
+        if (updateFront(tile, screenX, screenY, fog)) {
+            drawWithFog(tile, screenX, screenY, fog);
+        }
+    }
+
+    // Records that a window cell is about to show a tile with a fog, returning false if it
+    // already shows it. Cells outside the window, e.g. the extra column and row of a view
+    // between tiles, are always painted.
+    private boolean updateFront(TETile tile, int screenX, int screenY, byte fog) {
+        if (frontTiles != null && screenX >= 0 && screenX < width && screenY >= 0 && screenY < height) {
+            int i = screenY * width + screenX;
+            if (frontTiles[i] == tile && frontFog[i] == fog) {
+                return false;
+            }
+            frontTiles[i] = tile;
+            frontFog[i] = fog;
+        }
+        return true;
+    }
+
+    private void drawWithFog(TETile tile, int screenX, int screenY, byte fog) {
+        if (fog == FOG_VISIBLE) {
+            // Fully visible tile
+            drawTile(tile, screenX, screenY);
+        } else if (fog == FOG_EXPLORED) {
+            // Explored but not currently visible - draw dimmed version
+            drawTile(FogTiles.dimmed(tile, fogLevel), screenX, screenY);
+        } else {
+            // Unexplored - draw nothing (black)
+            drawTile(Tileset.NOTHING, screenX, screenY);
+        }
+    }
+
+    /**
+     * Resets the font to default settings. The backend is given the tile font with every tile,
+     * so other drawing cannot change the font tiles are drawn with.
      */
     public void resetFont() {
-        Font font = new Font("Monaco", Font.BOLD, TILE_SIZE - 2);
-        StdDraw.setFont(font);
+        if (tileFont == null) {
+            tileFont = new Font("Monaco", Font.BOLD, TILE_SIZE - 2);
+        }
+    }
+
+    // Copies a tile from the atlas, falling back to the backend's drawTile without a surface
+    // or for tiles drawn from image files
+    private void drawTile(TETile tile, int screenX, int screenY) {
+        int pixelX = screenX * TILE_SIZE - subPixelX;
+        int pixelY = (height - 1 - screenY) * TILE_SIZE + subPixelY;
+        if (frameGraphics == null || !atlas.draw(frameGraphics, tile, pixelX, pixelY)) {
+            backend.drawTile(tile, screenX - (double) subPixelX / TILE_SIZE,
+                    screenY - (double) subPixelY / TILE_SIZE, tileFont);
+        }
     }
 }
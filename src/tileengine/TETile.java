@@ -117,6 +117,19 @@ public class TETile {
         return character;
     }
 
+    // Colors and image path, for the renderer's glyph atlas
+    Color textColor() {
+        return textColor;
+    }
+
+    Color backgroundColor() {
+        return backgroundColor;
+    }
+
+    String filepath() {
+        return filepath;
+    }
+
     /**
      * Description of the tile. Useful for displaying mouseover text or
      * testing that two tiles represent the same type of thing.
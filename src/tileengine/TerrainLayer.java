@@ -0,0 +1,160 @@
+package tileengine;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Pre-rendered images of a world's terrain, so that TERenderer can draw the terrain of a whole
+ * frame with a few image copies instead of drawing every tile. The terrain is cut into square
+ * pages of PAGE_TILES tiles that are rendered the first time they are needed, both as they
+ * look when visible and, for fog of war, as they look when only remembered.
+ *
+ * The terrain must not change while it is shown through this layer, or the change must be
+ * reported with invalidateTile. Entities such as the avatar and coins belong in an
+ * EntityLayer instead.
+ */
+public class TerrainLayer {
+    public static final int PAGE_TILES = 32;
+
+    // Pages kept before the least recently drawn one is dropped
+    private static final int MAX_PAGES = 48;
+
+    // Fog level argument for visible terrain; pages of remembered terrain use their fog level
+    static final int VISIBLE = -1;
+
+    private final TileGrid terrain;
+    private final Map<Long, BufferedImage> pages;
+    private int atlasGeneration = -1;
+
+    /**
+     * Creates a layer over a terrain grid. Nothing is rendered until the layer is drawn.
+     * @param terrain the terrain, usually World.getWorldGrid()
+     */
+    public TerrainLayer(TileGrid terrain) {
+        this.terrain = terrain;
+        this.pages = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, BufferedImage> eldest) {
+                return size() > MAX_PAGES;
+            }
+        };
+    }
+
+    public TileGrid terrain() {
+        return terrain;
+    }
+
+    /**
+     * Drops every rendered page.
+     */
+    public void invalidate() {
+        pages.clear();
+    }
+
+    /**
+     * Drops the pages that show a tile, after the terrain at that tile has changed.
+     * @param x x coordinate of the tile
+     * @param y y coordinate of the tile
+     */
+    public void invalidateTile(int x, int y) {
+        int pageX = (x / PAGE_TILES) & 0xFFFFFF;
+        int pageY = (y / PAGE_TILES) & 0xFFFFFF;
+        pages.keySet().removeIf(key -> pageX(key) == pageX && pageY(key) == pageY);
+    }
+
+    /**
+     * Copies a rectangle of terrain onto a surface.
+     * @param g the surface to draw on
+     * @param atlas prepared atlas used to render new pages
+     * @param fogLevel -1 for visible terrain, otherwise the FogTiles level of remembered terrain
+     * @param x0 left tile of the rectangle
+     * @param y0 bottom tile of the rectangle
+     * @param x1 one past the right tile of the rectangle
+     * @param y1 one past the top tile of the rectangle
+     * @param left left edge of the rectangle on the surface
+     * @param top top edge of the rectangle on the surface
+     */
+    void draw(Graphics2D g, GlyphAtlas atlas, int fogLevel, int x0, int y0, int x1, int y1,
+              int left, int top) {
+        if (atlas.generation() != atlasGeneration) {
+            pages.clear();
+            atlasGeneration = atlas.generation();
+        }
+        int tileSize = atlas.tileSize();
+        int slotSize = atlas.slotSize();
+        for (int pageY = Math.floorDiv(y0, PAGE_TILES); pageY * PAGE_TILES < y1; pageY += 1) {
+            for (int pageX = Math.floorDiv(x0, PAGE_TILES); pageX * PAGE_TILES < x1; pageX += 1) {
+                int pageLeft = pageX * PAGE_TILES;
+                int pageBottom = pageY * PAGE_TILES;
+                int ax0 = Math.max(x0, pageLeft);
+                int ax1 = Math.min(x1, pageLeft + PAGE_TILES);
+                int ay0 = Math.max(y0, pageBottom);
+                int ay1 = Math.min(y1, pageBottom + PAGE_TILES);
+
+                // Page images have their top row first
+                BufferedImage page = page(atlas, fogLevel, pageX, pageY);
+                int dx = left + (ax0 - x0) * tileSize;
+                int dy = top + (y1 - ay1) * tileSize;
+                int sx = (ax0 - pageLeft) * slotSize;
+                int sy = (pageBottom + PAGE_TILES - ay1) * slotSize;
+                g.drawImage(page, dx, dy, dx + (ax1 - ax0) * tileSize, dy + (ay1 - ay0) * tileSize,
+                        sx, sy, sx + (ax1 - ax0) * slotSize, sy + (ay1 - ay0) * slotSize, null);
+            }
+        }
+    }
+
+    // Helper Methods
+
+    private BufferedImage page(GlyphAtlas atlas, int fogLevel, int pageX, int pageY) {
+        long key = key(fogLevel, pageX, pageY);
+        BufferedImage page = pages.get(key);
+        if (page == null) {
+            page = render(atlas, fogLevel, pageX, pageY);
+            pages.put(key, page);
+        }
+        return page;
+    }
+
+    private BufferedImage render(GlyphAtlas atlas, int fogLevel, int pageX, int pageY) {
+        int tileSize = atlas.tileSize();
+        int slotSize = atlas.slotSize();
+        BufferedImage page = new BufferedImage(PAGE_TILES * slotSize, PAGE_TILES * slotSize,
+                BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = page.createGraphics();
+        g.scale((double) slotSize / tileSize, (double) slotSize / tileSize);
+        for (int row = 0; row < PAGE_TILES; row += 1) {
+            int y = pageY * PAGE_TILES + PAGE_TILES - 1 - row;
+            for (int column = 0; column < PAGE_TILES; column += 1) {
+                int x = pageX * PAGE_TILES + column;
+                TETile tile = terrain.inBounds(x, y) ? terrain.get(x, y) : Tileset.NOTHING;
+                if (fogLevel != VISIBLE) {
+                    tile = FogTiles.dimmed(tile, fogLevel);
+                }
+                if (!atlas.draw(g, tile, column * tileSize, row * tileSize)) {
+                    // Image files cannot be drawn into a page; show the tile's background
+                    g.setColor(tile.backgroundColor());
+                    g.fillRect(column * tileSize, row * tileSize, tileSize, tileSize);
+                }
+            }
+        }
+        g.dispose();
+        return page;
+    }
+
+    // Fog level in the top bits, then the page coordinates as two 24-bit fields
+    private static long key(int fogLevel, int pageX, int pageY) {
+        return ((long) (fogLevel + 1) << 48)
+                | ((long) (pageX & 0xFFFFFF) << 24)
+                | (pageY & 0xFFFFFF);
+    }
+
+    private static int pageX(long key) {
+        return (int) (key >>> 24) & 0xFFFFFF;
+    }
+
+    private static int pageY(long key) {
+        return (int) key & 0xFFFFFF;
+    }
+}
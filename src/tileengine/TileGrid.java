@@ -0,0 +1,226 @@
+package tileengine;
+
+import java.util.Arrays;
+
+/**
+ * A compact 2D grid of tiles stored as one byte per cell. Cells hold TETile ids in row-major
+ * order (index = y * width + x), and are mapped back to tiles through the Tileset registry.
+ *
+ * Because only ids are stored, any tile written into the grid reads back as the canonical
+ * Tileset tile with the same id. Use toTileArray to get a TETile[][] copy for code that
+ * still works with tile arrays, such as TETile.toString.
+ */
+public class TileGrid {
+    private final int width;
+    private final int height;
+    private final byte[] ids;
+
+    /**
+     * Creates a grid of the given size filled with Tileset.NOTHING.
+     * @param width width of the grid in tiles
+     * @param height height of the grid in tiles
+     */
+    public TileGrid(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.ids = new byte[width * height];
+        fill(Tileset.NOTHING);
+    }
+
+    private TileGrid(int width, int height, byte[] ids) {
+        this.width = width;
+        this.height = height;
+        this.ids = ids;
+    }
+
+    /**
+     * Builds a grid from a TETile[][] array.
+     * @param tiles the 2D array to copy, indexed [x][y]
+     * @return a new grid holding the ids of the given tiles
+     */
+    public static TileGrid fromTiles(TETile[][] tiles) {
+        TileGrid grid = new TileGrid(tiles.length, tiles[0].length);
+        for (int x = 0; x < grid.width; x += 1) {
+            for (int y = 0; y < grid.height; y += 1) {
+                grid.set(x, y, tiles[x][y]);
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Builds a grid from tile ids in row-major order, e.g. as read back from a save file.
+     * @param width width of the grid in tiles
+     * @param height height of the grid in tiles
+     * @param ids one id per cell; the array is used directly, not copied
+     * @return a new grid over the ids
+     */
+    public static TileGrid fromIds(int width, int height, byte[] ids) {
+        if (ids.length != width * height) {
+            throw new IllegalArgumentException("Expected " + width * height + " ids, got "
+                    + ids.length);
+        }
+        for (int i = 0; i < ids.length; i += 1) {
+            if (Tileset.byId(ids[i]) == null) {
+                throw new IllegalArgumentException("Unknown tile id " + ids[i] + " at index " + i);
+            }
+        }
+        return new TileGrid(width, height, ids);
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    /**
+     * Number of cells in the grid.
+     * @return width * height
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    public boolean inBounds(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+
+    /**
+     * Row-major index of the cell at x, y.
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return the cell index
+     */
+    public int index(int x, int y) {
+        return y * width + x;
+    }
+
+    public TETile get(int x, int y) {
+        return Tileset.byId(ids[index(x, y)]);
+    }
+
+    public int getId(int x, int y) {
+        return ids[index(x, y)];
+    }
+
+    /**
+     * Tile id at a row-major cell index. Useful for full-grid scans.
+     * @param index cell index, see index(x, y)
+     * @return the tile id stored in that cell
+     */
+    public int idAt(int index) {
+        return ids[index];
+    }
+
+    public void set(int x, int y, TETile tile) {
+        ids[index(x, y)] = toId(tile);
+    }
+
+    public void setAt(int index, TETile tile) {
+        ids[index] = toId(tile);
+    }
+
+    /**
+     * Sets every cell to the given tile.
+     * @param tile the tile to fill with
+     */
+    public void fill(TETile tile) {
+        Arrays.fill(ids, toId(tile));
+    }
+
+    /**
+     * Builds a bit mask of the cells holding the given tile.
+     * @param tile the tile to look for
+     * @return a new BitGrid with a bit set for every matching cell
+     */
+    public BitGrid mask(TETile tile) {
+        byte id = toId(tile);
+        BitGrid mask = new BitGrid(width, height);
+        for (int y = 0; y < height; y += 1) {
+            int row = y * width;
+            for (int x = 0; x < width; x += 1) {
+                if (ids[row + x] == id) {
+                    mask.set(x, y);
+                }
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Sets every cell whose bit is set in mask to the given tile. The mask must have the same
+     * size as this grid.
+     * @param mask cells to paint
+     * @param tile the tile to paint with
+     */
+    public void paint(BitGrid mask, TETile tile) {
+        if (mask.width() != width || mask.height() != height) {
+            throw new IllegalArgumentException("Mask size differs from grid size.");
+        }
+        byte id = toId(tile);
+        for (int y = 0; y < height; y += 1) {
+            int row = y * width;
+            for (int w = 0; w < mask.wordsPerRow(); w += 1) {
+                long bits = mask.word(y, w);
+                while (bits != 0) {
+                    ids[row + (w << 6) + Long.numberOfTrailingZeros(bits)] = id;
+                    bits &= bits - 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Makes an independent copy of this grid.
+     * @return the copy
+     */
+    public TileGrid copy() {
+        return new TileGrid(width, height, Arrays.copyOf(ids, ids.length));
+    }
+
+    /**
+     * Copies every cell of other into this grid. Both grids must have the same size.
+     * @param other the grid to copy from
+     */
+    public void copyFrom(TileGrid other) {
+        if (other.width != width || other.height != height) {
+            throw new IllegalArgumentException("Grid sizes differ: " + other.width + "x"
+                    + other.height + " vs " + width + "x" + height);
+        }
+        System.arraycopy(other.ids, 0, ids, 0, ids.length);
+    }
+
+    /**
+     * Materializes the grid as a TETile[][] array indexed [x][y], for code such as
+     * TETile.toString and the TETile[][] methods of TERenderer.
+     * @return a new array of canonical tiles
+     */
+    public TETile[][] toTileArray() {
+        TETile[][] tiles = new TETile[width][height];
+        for (int y = 0; y < height; y += 1) {
+            int row = y * width;
+            for (int x = 0; x < width; x += 1) {
+                tiles[x][y] = Tileset.byId(ids[row + x]);
+            }
+        }
+        return tiles;
+    }
+
+    @Override
+    public String toString() {
+        return TETile.toString(toTileArray());
+    }
+
+    private static byte toId(TETile tile) {
+        if (tile == null) {
+            throw new IllegalArgumentException("Cannot store a null tile.");
+        }
+        if (Tileset.byId(tile.id()) == null) {
+            throw new IllegalArgumentException("Tile id " + tile.id() + " is not in the Tileset.");
+        }
+        return (byte) tile.id();
+    }
+}
@@ -36,6 +36,40 @@ public class Tileset {
     public static final TETile CELL = new TETile('█', Color.white, Color.black, "cell", 12);
     
     public static final TETile COIN = new TETile('$', Color.yellow, Color.black, "coin", 13);
+
+    private static final TETile[] BY_ID = registry(AVATAR, WALL, FLOOR, NOTHING, GRASS, WATER,
+            FLOWER, LOCKED_DOOR, UNLOCKED_DOOR, SAND, MOUNTAIN, TREE, CELL, COIN);
+
+    /**
+     * Looks up the tile registered under the given id. TileGrid stores only ids and uses this
+     * to turn them back into tiles.
+     * @param id tile id
+     * @return the Tileset tile with that id, or null if there is none
+     */
+    public static TETile byId(int id) {
+        if (id < 0 || id >= BY_ID.length) {
+            return null;
+        }
+        return BY_ID[id];
+    }
+
+    private static TETile[] registry(TETile... tiles) {
+        int maxId = 0;
+        for (TETile t : tiles) {
+            maxId = Math.max(maxId, t.id());
+        }
+        if (maxId > Byte.MAX_VALUE) {
+            throw new IllegalStateException("Tile ids must fit in a byte for TileGrid: " + maxId);
+        }
+        TETile[] byId = new TETile[maxId + 1];
+        for (TETile t : tiles) {
+            if (byId[t.id()] != null) {
+                throw new IllegalStateException("Duplicate tile id " + t.id());
+            }
+            byId[t.id()] = t;
+        }
+        return byId;
+    }
 }
 
 
@@ -0,0 +1,34 @@
+package utils;
+
+/**
+ * Keys for Zobrist-style hashing: each (kind, value) pair, such as a tile id and the cell it
+ * is in, gets a fixed pseudo-random 64-bit key, and a state's hash is the XOR of the keys of
+ * its parts. Adding or removing a part is then a single XOR. Keys are computed instead of
+ * looked up in a table, so they cost no memory for large worlds and are the same on every run.
+ */
+public class Zobrist {
+
+    /**
+     * Gets the key of a part of the state.
+     *
+     * @param kind what the value is, e.g. a tile id
+     * @param value the value, e.g. a row-major cell index
+     * @return the key
+     */
+    public static long key(long kind, long value) {
+        return mix(kind * 0x9E3779B97F4A7C15L + value);
+    }
+
+    /**
+     * Scrambles the bits of a long with the SplitMix64 finalizer. Different inputs always give
+     * different outputs.
+     *
+     * @param z the value to scramble
+     * @return the scrambled value
+     */
+    public static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}